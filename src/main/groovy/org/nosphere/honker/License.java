@@ -21,6 +21,7 @@ import java.io.InputStream;
 import static java.util.Arrays.asList;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -514,6 +515,14 @@ public enum License
         this.urls.addAll( urls );
     }
 
+    /**
+     * @return All known names of this license, the prefered one first
+     */
+    public Set<String> getNames()
+    {
+        return Collections.unmodifiableSet( names );
+    }
+
     public String getPreferedName()
     {
         return names.iterator().next();
@@ -526,17 +535,20 @@ public enum License
 
     public boolean conflictWith( License other )
     {
-        return CONFLICTS.get( other ).contains( this );
+        Set<License> conflicts = CONFLICTS.get( other );
+        return conflicts != null && conflicts.contains( this );
     }
 
     public boolean needMentionInLicenseFor( License other )
     {
-        return NEED_MENTION_IN_LICENSE.get( other ).contains( this );
+        Set<License> needMention = NEED_MENTION_IN_LICENSE.get( other );
+        return needMention != null && needMention.contains( this );
     }
 
     public boolean needMentionInNoticeFor( License other )
     {
-        return NEED_MENTION_IN_NOTICE.get( other ).contains( this );
+        Set<License> needMention = NEED_MENTION_IN_NOTICE.get( other );
+        return needMention != null && needMention.contains( this );
     }
 
     public String licenseTemplate()
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse-edge index of a dependency graph, answering which first level dependencies pull some module in.
+ * <p>
+ * Built from the roots and the complete edges of a {@link DepTree}, including the edges pruned from the tree.
+ */
+public final class DepGraphIndex
+{
+    /**
+     * Bound of the nodes explored per query, only reached on graphs with many cycles.
+     */
+    private static final int MAX_EXPLORED = 100000;
+
+    private final Set<String> roots;
+    private final Map<String, Set<String>> edges;
+    private final Map<String, List<String>> parents = new HashMap<>();
+    private final Map<String, List<String>> byModule = new HashMap<>();
+
+    public DepGraphIndex( DepTree graph )
+    {
+        this.roots = graph.getRoots();
+        this.edges = graph.getEdges();
+        for( String root : roots )
+        {
+            index( root );
+        }
+        for( Map.Entry<String, Set<String>> edge : graph.getEdges().entrySet() )
+        {
+            index( edge.getKey() );
+            for( String child : edge.getValue() )
+            {
+                index( child );
+                parents.get( child ).add( edge.getKey() );
+            }
+        }
+    }
+
+    private void index( String coordinates )
+    {
+        if( !parents.containsKey( coordinates ) )
+        {
+            parents.put( coordinates, new ArrayList<String>( 2 ) );
+            String module = moduleOf( coordinates );
+            List<String> versions = byModule.get( module );
+            if( versions == null )
+            {
+                versions = new ArrayList<>( 1 );
+                byModule.put( module, versions );
+            }
+            versions.add( coordinates );
+        }
+    }
+
+    /**
+     * @param notation {@literal group:module}, {@literal group:module:version} or artifact coordinates
+     * @return Coordinates of the matching dependencies, empty if none
+     */
+    public Set<String> find( String notation )
+    {
+        String[] parts = notation.trim().split( ":" );
+        if( parts.length < 2 )
+        {
+            return Collections.emptySet();
+        }
+        if( parts.length > 2 )
+        {
+            String coordinates = parts[ 0 ] + ':' + parts[ 1 ] + ':' + parts[ 2 ];
+            return parents.containsKey( coordinates )
+                   ? Collections.singleton( coordinates )
+                   : Collections.<String>emptySet();
+        }
+        List<String> versions = byModule.get( parts[ 0 ] + ':' + parts[ 1 ] );
+        return versions == null ? Collections.<String>emptySet() : new LinkedHashSet<>( versions );
+    }
+
+    /**
+     * @return Direct dependents of the given dependency, empty if none
+     */
+    public List<String> getParents( String coordinates )
+    {
+        List<String> found = parents.get( coordinates );
+        return found == null ? Collections.<String>emptyList() : Collections.unmodifiableList( found );
+    }
+
+    /**
+     * Paths from first level dependencies to the given dependency.
+     * <p>
+     * A breadth-first search over the reverse edges gives the distance of every dependent to the given dependency.
+     * Paths are then enumerated from the closest first level dependencies, only through dependents and by increasing
+     * distance, so that the first path of each first level dependency is a shortest one and no dead end is explored.
+     *
+     * @param limit Maximum number of paths
+     * @return Paths, each starting with a first level dependency and ending with the given dependency
+     */
+    public List<List<String>> pathsTo( String coordinates, int limit )
+    {
+        List<List<String>> paths = new ArrayList<>();
+        if( !parents.containsKey( coordinates ) )
+        {
+            return paths;
+        }
+        final Map<String, Integer> distances = new HashMap<>();
+        distances.put( coordinates, 0 );
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add( coordinates );
+        while( !queue.isEmpty() )
+        {
+            String current = queue.poll();
+            int distance = distances.get( current ) + 1;
+            for( String parent : parents.get( current ) )
+            {
+                if( !distances.containsKey( parent ) )
+                {
+                    distances.put( parent, distance );
+                    queue.add( parent );
+                }
+            }
+        }
+        Comparator<String> byDistance = new Comparator<String>()
+        {
+            @Override
+            public int compare( String left, String right )
+            {
+                return Integer.compare( distances.get( left ), distances.get( right ) );
+            }
+        };
+        List<String> startingRoots = new ArrayList<>();
+        for( String root : roots )
+        {
+            if( distances.containsKey( root ) )
+            {
+                startingRoots.add( root );
+            }
+        }
+        Collections.sort( startingRoots, byDistance );
+        PathSearch search = new PathSearch( coordinates, distances, byDistance, paths, limit );
+        for( String root : startingRoots )
+        {
+            if( !search.enumerate( root ) )
+            {
+                break;
+            }
+        }
+        return paths;
+    }
+
+    private static String moduleOf( String coordinates )
+    {
+        int groupEnd = coordinates.indexOf( ':' );
+        int moduleEnd = groupEnd < 0 ? -1 : coordinates.indexOf( ':', groupEnd + 1 );
+        return moduleEnd < 0 ? coordinates : coordinates.substring( 0, moduleEnd );
+    }
+
+    /**
+     * Depth-first enumeration of paths through dependents only, bounded.
+     */
+    private final class PathSearch
+    {
+        private final String target;
+        private final Map<String, Integer> distances;
+        private final Comparator<String> byDistance;
+        private final List<List<String>> paths;
+        private final int limit;
+        private final LinkedHashSet<String> current = new LinkedHashSet<>();
+        private int explored;
+
+        private PathSearch( String target, Map<String, Integer> distances, Comparator<String> byDistance,
+                            List<List<String>> paths, int limit )
+        {
+            this.target = target;
+            this.distances = distances;
+            this.byDistance = byDistance;
+            this.paths = paths;
+            this.limit = limit;
+        }
+
+        /**
+         * @return {@literal false} once enough paths were found or too many nodes were explored
+         */
+        private boolean enumerate( String node )
+        {
+            if( paths.size() >= limit || explored++ >= MAX_EXPLORED )
+            {
+                return false;
+            }
+            current.add( node );
+            try
+            {
+                if( node.equals( target ) )
+                {
+                    paths.add( new ArrayList<>( current ) );
+                    return paths.size() < limit;
+                }
+                List<String> next = new ArrayList<>();
+                Set<String> children = edges.get( node );
+                if( children != null )
+                {
+                    for( String child : children )
+                    {
+                        if( distances.containsKey( child ) && !current.contains( child ) )
+                        {
+                            next.add( child );
+                        }
+                    }
+                }
+                Collections.sort( next, byDistance );
+                for( String child : next )
+                {
+                    if( !enumerate( child ) )
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            finally
+            {
+                current.remove( node );
+            }
+        }
+    }
+}
@@ -15,19 +15,130 @@
  */
 package org.nosphere.honker.deptree;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Dependencies Tree.
+ * <p>
+ * Nodes of dependencies reachable through several paths are only present once in the tree.
+ * All dependency edges between coordinates are available as a graph.
+ * <p>
+ * Trees are analysed either by {@link DepTreeVisitor visitors}, walking the tree serially,
+ * or by {@link DepTreeCollector collectors}, running over partitions of the nodes in parallel.
  */
 public class DepTree
     implements DepTreeVisitor.Visitable
 {
     private final List<DepTreeNode> children;
+    private final Set<String> roots;
+    private final Map<String, Set<String>> edges;
 
     public DepTree( List<DepTreeNode> children )
+    {
+        this( children, Collections.<String>emptySet(), Collections.<String, Set<String>>emptyMap() );
+    }
+
+    public DepTree( List<DepTreeNode> children, Set<String> roots, Map<String, Set<String>> edges )
     {
         this.children = children;
+        this.roots = Collections.unmodifiableSet( roots );
+        this.edges = Collections.unmodifiableMap( edges );
+    }
+
+    /**
+     * @return Coordinates of the first level dependencies
+     */
+    public Set<String> getRoots()
+    {
+        return roots;
+    }
+
+    /**
+     * @return Coordinates of the direct dependencies of each dependency, keyed by their coordinates
+     */
+    public Map<String, Set<String>> getEdges()
+    {
+        return edges;
+    }
+
+    /**
+     * @return Data of the tree nodes, in pre-order
+     */
+    public List<DepTreeData> getNodes()
+    {
+        final List<DepTreeData> nodes = new ArrayList<>();
+        accept( new DepTreeVisitor()
+        {
+            @Override
+            public boolean visitEnter( DepTreeNode node )
+            {
+                nodes.add( node.getData() );
+                return true;
+            }
+
+            @Override
+            public boolean visitExit( DepTreeNode node )
+            {
+                return true;
+            }
+        } );
+        return nodes;
+    }
+
+    /**
+     * Run the given analysis over partitions of the tree nodes with fork/join.
+     */
+    public <A, R> R collect( DepTreeCollector<A, R> collector )
+    {
+        return collector.finish( accumulate( collector ) );
+    }
+
+    /**
+     * Run the given analysis over several trees, their results are combined in the given order.
+     */
+    public static <A, R> R collect( Collection<DepTree> trees, DepTreeCollector<A, R> collector )
+    {
+        A container = null;
+        for( DepTree tree : trees )
+        {
+            A treeContainer = tree.accumulate( collector );
+            container = container == null ? treeContainer : collector.combine( container, treeContainer );
+        }
+        return collector.finish( container != null ? container : collector.supply() );
+    }
+
+    private <A, R> A accumulate( DepTreeCollector<A, R> collector )
+    {
+        List<DepTreeData> nodes = getNodes();
+        CollectTask<A, R> task = new CollectTask<>( collector, nodes, 0, nodes.size() );
+        if( !isLoaded( nodes, collector.getFacets() ) )
+        {
+            // Artifact sources aren't thread safe, missing facets are extracted in the calling thread
+            return task.accumulate();
+        }
+        return ForkJoinPool.commonPool().invoke( task );
+    }
+
+    private static boolean isLoaded( List<DepTreeData> nodes, Set<DepTreeData.Facet> facets )
+    {
+        for( DepTreeData node : nodes )
+        {
+            for( DepTreeData.Artifact artifact : node.getArtifacts() )
+            {
+                if( !artifact.isLoaded( facets ) )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     @Override
@@ -42,4 +153,54 @@ public class DepTree
         }
         return true;
     }
+
+    /**
+     * Accumulates a range of nodes, splitting it in halves above a threshold.
+     */
+    private static final class CollectTask<A, R>
+        extends RecursiveTask<A>
+    {
+        private static final long serialVersionUID = 1L;
+        private static final int THRESHOLD = 64;
+
+        private final DepTreeCollector<A, R> collector;
+        private final List<DepTreeData> nodes;
+        private final int start;
+        private final int end;
+
+        private CollectTask( DepTreeCollector<A, R> collector, List<DepTreeData> nodes, int start, int end )
+        {
+            this.collector = collector;
+            this.nodes = nodes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected A compute()
+        {
+            if( end - start <= THRESHOLD )
+            {
+                return accumulate();
+            }
+            int middle = ( start + end ) >>> 1;
+            CollectTask<A, R> left = new CollectTask<>( collector, nodes, start, middle );
+            left.fork();
+            A right = new CollectTask<>( collector, nodes, middle, end ).compute();
+            return collector.combine( left.join(), right );
+        }
+
+        /**
+         * Accumulate the whole range in the current thread.
+         */
+        private A accumulate()
+        {
+            A container = collector.supply();
+            for( int idx = start; idx < end; idx++ )
+            {
+                collector.accumulate( container, nodes.get( idx ) );
+            }
+            return container;
+        }
+    }
 }
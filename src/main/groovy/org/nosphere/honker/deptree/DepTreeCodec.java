@@ -0,0 +1,644 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.nosphere.honker.License;
+
+/**
+ * Compact binary encoding of dependency tree snapshots, including the given facets of their artifacts.
+ * <p>
+ * Layout, all integers are unsigned varints:
+ * <pre>
+ * "HKDT" magic, format version
+ * strings: count, then UTF-8 length and bytes, index 0 stands for {@literal null}
+ * texts: count, then SHA-1 digest, UTF-8 length and bytes, license texts are stored once per digest
+ * artifacts: count, then coordinates, checksum, override, recorded facets bit set, detection tier and licenses,
+ *            manifest, POM and license files of the recorded facets only, license files reference their text by
+ *            index, then the embedded POM when it was already looked for
+ * nodes: count, then coordinates and artifact indexes, the node index is the node id
+ * tree: pre-order node ids plus one, each node followed by its children and a 0 terminator, 0 terminated
+ * roots: count, then coordinates
+ * edges: count, then for each dependency its coordinates, the count and coordinates of its direct dependencies
+ * </pre>
+ * Decoding reads the snapshot in one buffer and only allocates the decoded objects, each string once.
+ */
+public final class DepTreeCodec
+{
+    private static final byte[] MAGIC = { 'H', 'K', 'D', 'T' };
+    private static final int FORMAT_VERSION = 3;
+    private static final License[] LICENSES = License.values();
+    private static final LicenseDetection.Tier[] TIERS = LicenseDetection.Tier.values();
+
+    private DepTreeCodec()
+    {
+    }
+
+    public static void write( DepTree depTree, OutputStream output )
+        throws IOException
+    {
+        write( depTree, output, EnumSet.allOf( DepTreeData.Facet.class ) );
+    }
+
+    /**
+     * @param facets Facets of the artifacts to record, they must already be extracted or they are extracted now,
+     *               other facets are decoded as empty
+     */
+    public static void write( DepTree depTree, OutputStream output, Set<DepTreeData.Facet> facets )
+        throws IOException
+    {
+        new Encoder( facets ).encode( depTree ).writeTo( output );
+    }
+
+    public static DepTree read( InputStream input )
+        throws IOException
+    {
+        return read( input, LicenseDetection.DEFAULT );
+    }
+
+    /**
+     * @param licenseDetection License detection of the decoded artifacts, its license database provides their
+     *                         organization when their metadata doesn't
+     */
+    public static DepTree read( InputStream input, LicenseDetection licenseDetection )
+        throws IOException
+    {
+        return new Decoder( IOUtils.toByteArray( input ), licenseDetection ).decode();
+    }
+
+    private static final class Encoder
+        implements DepTreeVisitor
+    {
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<String, Integer> texts = new LinkedHashMap<>();
+        private final Map<String, String> textContents = new HashMap<>();
+        private final Map<DepTreeData.Artifact, Integer> artifacts = new IdentityHashMap<>();
+        private final Map<String, Integer> nodes = new LinkedHashMap<>();
+        private final Buffer artifactsSection = new Buffer();
+        private final Buffer nodesSection = new Buffer();
+        private final Buffer treeSection = new Buffer();
+        private final Buffer graphSection = new Buffer();
+        private final MessageDigest sha1 = sha1();
+        private final Set<DepTreeData.Facet> facets;
+        private final int facetBits;
+
+        private Encoder( Set<DepTreeData.Facet> facets )
+        {
+            this.facets = facets;
+            int bits = 0;
+            for( DepTreeData.Facet facet : facets )
+            {
+                bits |= 1 << facet.ordinal();
+            }
+            this.facetBits = bits;
+        }
+
+        private Encoder encode( DepTree depTree )
+        {
+            depTree.accept( this );
+            treeSection.writeVarint( 0 );
+            writeCoordinates( depTree.getRoots() );
+            graphSection.writeVarint( depTree.getEdges().size() );
+            for( Map.Entry<String, Set<String>> edge : depTree.getEdges().entrySet() )
+            {
+                graphSection.writeVarint( string( edge.getKey() ) );
+                writeCoordinates( edge.getValue() );
+            }
+            return this;
+        }
+
+        private void writeCoordinates( Set<String> coordinates )
+        {
+            graphSection.writeVarint( coordinates.size() );
+            for( String coordinate : coordinates )
+            {
+                graphSection.writeVarint( string( coordinate ) );
+            }
+        }
+
+        @Override
+        public boolean visitEnter( DepTreeNode node )
+        {
+            treeSection.writeVarint( nodeId( node.getData() ) + 1 );
+            return true;
+        }
+
+        @Override
+        public boolean visitExit( DepTreeNode node )
+        {
+            treeSection.writeVarint( 0 );
+            return true;
+        }
+
+        private void writeTo( OutputStream output )
+            throws IOException
+        {
+            Buffer header = new Buffer();
+            header.write( MAGIC, 0, MAGIC.length );
+            header.writeVarint( FORMAT_VERSION );
+            header.writeVarint( strings.size() + 1 );
+            for( String string : strings.keySet() )
+            {
+                header.writeString( string );
+            }
+            header.writeVarint( texts.size() );
+            for( String digest : texts.keySet() )
+            {
+                byte[] bytes = digest.getBytes( StandardCharsets.ISO_8859_1 );
+                header.write( bytes, 0, bytes.length );
+                header.writeString( textContents.get( digest ) );
+            }
+            header.writeVarint( artifacts.size() );
+            header.writeTo( output );
+            artifactsSection.writeTo( output );
+            Buffer nodesCount = new Buffer();
+            nodesCount.writeVarint( nodes.size() );
+            nodesCount.writeTo( output );
+            nodesSection.writeTo( output );
+            treeSection.writeTo( output );
+            graphSection.writeTo( output );
+            output.flush();
+        }
+
+        private int nodeId( DepTreeData data )
+        {
+            Integer id = nodes.get( data.getCoordinates() );
+            if( id == null )
+            {
+                int[] artifactIds = new int[ data.getArtifacts().size() ];
+                int idx = 0;
+                for( DepTreeData.Artifact artifact : data.getArtifacts() )
+                {
+                    artifactIds[ idx++ ] = artifactId( artifact );
+                }
+                id = nodes.size();
+                nodes.put( data.getCoordinates(), id );
+                nodesSection.writeVarint( string( data.getCoordinates() ) );
+                nodesSection.writeVarint( artifactIds.length );
+                for( int artifactId : artifactIds )
+                {
+                    nodesSection.writeVarint( artifactId );
+                }
+            }
+            return id;
+        }
+
+        private int artifactId( DepTreeData.Artifact artifact )
+        {
+            Integer id = artifacts.get( artifact );
+            if( id != null )
+            {
+                return id;
+            }
+            id = artifacts.size();
+            artifacts.put( artifact, id );
+            Buffer out = artifactsSection;
+            out.writeVarint( string( artifact.getCoordinates() ) );
+            out.writeVarint( string( artifact.getChecksum() ) );
+            out.writeVarint( string( artifact.getOverridenLicense() ) );
+            out.writeVarint( facetBits );
+            if( facets.contains( DepTreeData.Facet.LICENSES ) )
+            {
+                LicenseDetection.Detection detection = artifact.getDetection();
+                out.writeVarint( detection.getTier() == null ? 0 : detection.getTier().ordinal() + 1 );
+                out.writeVarint( detection.getLicenses().size() );
+                for( License license : detection.getLicenses() )
+                {
+                    out.writeVarint( license.ordinal() );
+                }
+            }
+            if( facets.contains( DepTreeData.Facet.ATTRIBUTION ) )
+            {
+                DepTreeData.Manifest manifest = artifact.getManifest();
+                out.writeVarint( string( manifest.getName() ) );
+                out.writeVarint( string( manifest.getVersion() ) );
+                out.writeVarint( string( manifest.getVendor() ) );
+                out.writeVarint( string( manifest.getUrl() ) );
+                out.writeVarint( string( manifest.getLicense() ) );
+                writePom( artifact.getPom() );
+            }
+            if( facets.contains( DepTreeData.Facet.LICENSE_FILES ) )
+            {
+                out.writeVarint( artifact.getLicenseFiles().size() );
+                for( DepTreeData.SomeFile file : artifact.getLicenseFiles() )
+                {
+                    out.writeVarint( string( file.getName() ) );
+                    out.writeVarint( string( file.getOriginalPath() ) );
+                    out.writeVarint( text( file.getContent() ) );
+                }
+            }
+            // Only looked for when licenses are detected from it, never extracted here
+            if( artifact.isEmbeddedPomLoaded() )
+            {
+                out.writeVarint( 1 );
+                writePom( artifact.getEmbeddedPom() );
+            }
+            else
+            {
+                out.writeVarint( 0 );
+            }
+            return id;
+        }
+
+        private void writePom( DepTreeData.Pom pom )
+        {
+            Buffer out = artifactsSection;
+            if( pom == null )
+            {
+                out.writeVarint( 0 );
+                return;
+            }
+            out.writeVarint( pom.getLicenses().size() + 1 );
+            for( DepTreeData.PomLicense license : pom.getLicenses() )
+            {
+                out.writeVarint( string( license.getName() ) );
+                out.writeVarint( string( license.getUrl() ) );
+                out.writeVarint( string( license.getDistribution() ) );
+                out.writeVarint( string( license.getComments() ) );
+            }
+            out.writeVarint( string( pom.getOrganization() ) );
+            out.writeVarint( string( pom.getOrganizationUrl() ) );
+            out.writeVarint( string( pom.getName() ) );
+            out.writeVarint( string( pom.getVersion() ) );
+            out.writeVarint( string( pom.getUrl() ) );
+        }
+
+        private int string( String string )
+        {
+            if( string == null )
+            {
+                return 0;
+            }
+            Integer index = strings.get( string );
+            if( index == null )
+            {
+                index = strings.size() + 1;
+                strings.put( string, index );
+            }
+            return index;
+        }
+
+        private int text( String content )
+        {
+            String digest = new String(
+                sha1.digest( content.getBytes( StandardCharsets.UTF_8 ) ), StandardCharsets.ISO_8859_1
+            );
+            Integer index = texts.get( digest );
+            if( index == null )
+            {
+                index = texts.size();
+                texts.put( digest, index );
+                textContents.put( digest, content );
+            }
+            return index;
+        }
+    }
+
+    private static final class Decoder
+    {
+        private final byte[] bytes;
+        private final LicenseDetection licenseDetection;
+        private int position;
+        private String[] strings;
+        private String[] texts;
+        private DepTreeData.Artifact[] artifacts;
+        private DepTreeData[] nodes;
+
+        private Decoder( byte[] bytes, LicenseDetection licenseDetection )
+        {
+            this.bytes = bytes;
+            this.licenseDetection = licenseDetection;
+        }
+
+        private DepTree decode()
+            throws IOException
+        {
+            if( bytes.length < MAGIC.length || !Arrays.equals( MAGIC, Arrays.copyOf( bytes, MAGIC.length ) ) )
+            {
+                throw new IOException( "Not a dependency tree snapshot" );
+            }
+            position = MAGIC.length;
+            int version = readVarint();
+            if( version != FORMAT_VERSION )
+            {
+                throw new IOException( "Unsupported dependency tree snapshot format version: " + version );
+            }
+            strings = new String[ readCount() ];
+            for( int idx = 1; idx < strings.length; idx++ )
+            {
+                strings[ idx ] = readString();
+            }
+            texts = new String[ readCount() ];
+            for( int idx = 0; idx < texts.length; idx++ )
+            {
+                skip( 20 );
+                texts[ idx ] = readString();
+            }
+            artifacts = new DepTreeData.Artifact[ readCount() ];
+            for( int idx = 0; idx < artifacts.length; idx++ )
+            {
+                artifacts[ idx ] = readArtifact();
+            }
+            nodes = new DepTreeData[ readCount() ];
+            for( int idx = 0; idx < nodes.length; idx++ )
+            {
+                String coordinates = readReference( strings );
+                int artifactCount = readCount();
+                List<DepTreeData.Artifact> nodeArtifacts = new ArrayList<>( artifactCount );
+                for( ; artifactCount > 0; artifactCount-- )
+                {
+                    nodeArtifacts.add( readReference( artifacts ) );
+                }
+                nodes[ idx ] = new DepTreeData( coordinates, nodeArtifacts );
+            }
+            List<DepTreeNode> children = readTree();
+            Set<String> roots = readCoordinates();
+            Map<String, Set<String>> edges = new LinkedHashMap<>();
+            for( int count = readCount(); count > 0; count-- )
+            {
+                edges.put( readReference( strings ), readCoordinates() );
+            }
+            return new DepTree( children, roots, edges );
+        }
+
+        private List<DepTreeNode> readTree()
+            throws IOException
+        {
+            List<DepTreeNode> children = new ArrayList<>();
+            Deque<DepTreeNode> parents = new ArrayDeque<>();
+            for( int id = readVarint(); id != 0 || !parents.isEmpty(); id = readVarint() )
+            {
+                if( id == 0 )
+                {
+                    parents.pop();
+                    continue;
+                }
+                if( id < 0 || id > nodes.length )
+                {
+                    throw invalidReference( id - 1, nodes.length );
+                }
+                DepTreeNode node = parents.isEmpty()
+                                   ? new DepTreeNode( nodes[ id - 1 ] )
+                                   : new DepTreeNode( parents.peek(), nodes[ id - 1 ] );
+                if( parents.isEmpty() )
+                {
+                    children.add( node );
+                }
+                parents.push( node );
+            }
+            return children;
+        }
+
+        private Set<String> readCoordinates()
+            throws IOException
+        {
+            int count = readCount();
+            Set<String> coordinates = new LinkedHashSet<>( count * 2 );
+            for( ; count > 0; count-- )
+            {
+                coordinates.add( readReference( strings ) );
+            }
+            return coordinates;
+        }
+
+        private DepTreeData.Artifact readArtifact()
+            throws IOException
+        {
+            String coordinates = readReference( strings );
+            String checksum = readReference( strings );
+            String overridenLicense = readReference( strings );
+            int facetBits = readVarint();
+            LicenseDetection.Detection detection = null;
+            if( isRecorded( facetBits, DepTreeData.Facet.LICENSES ) )
+            {
+                int tier = readVarint();
+                if( tier < 0 || tier > TIERS.length )
+                {
+                    throw invalidReference( tier - 1, TIERS.length );
+                }
+                Set<License> licenses = new LinkedHashSet<>();
+                for( int count = readCount(); count > 0; count-- )
+                {
+                    licenses.add( readReference( LICENSES ) );
+                }
+                detection = tier == 0
+                            ? LicenseDetection.Detection.NONE
+                            : new LicenseDetection.Detection( TIERS[ tier - 1 ], licenses );
+            }
+            DepTreeData.Manifest manifest = null;
+            DepTreeData.Pom pom = null;
+            if( isRecorded( facetBits, DepTreeData.Facet.ATTRIBUTION ) )
+            {
+                manifest = new DepTreeData.Manifest(
+                    readReference( strings ), readReference( strings ), readReference( strings ),
+                    readReference( strings ), readReference( strings )
+                );
+                pom = readPom();
+            }
+            List<DepTreeData.SomeFile> files = null;
+            if( isRecorded( facetBits, DepTreeData.Facet.LICENSE_FILES ) )
+            {
+                int fileCount = readCount();
+                files = new ArrayList<>( fileCount );
+                for( ; fileCount > 0; fileCount-- )
+                {
+                    files.add( new DepTreeData.SomeFile(
+                        readReference( strings ), readReference( strings ), readReference( texts )
+                    ) );
+                }
+            }
+            boolean embeddedPomLoaded = readVarint() != 0;
+            DepTreeData.Pom embeddedPom = embeddedPomLoaded ? readPom() : null;
+            return new DepTreeData.Artifact(
+                coordinates, checksum, manifest, embeddedPomLoaded, embeddedPom, pom, files, overridenLicense,
+                detection, licenseDetection
+            );
+        }
+
+        private static boolean isRecorded( int facetBits, DepTreeData.Facet facet )
+        {
+            return ( facetBits & 1 << facet.ordinal() ) != 0;
+        }
+
+        private DepTreeData.Pom readPom()
+            throws IOException
+        {
+            int licenseCount = readCount() - 1;
+            if( licenseCount < 0 )
+            {
+                return null;
+            }
+            List<DepTreeData.PomLicense> licenses = new ArrayList<>( licenseCount );
+            for( ; licenseCount > 0; licenseCount-- )
+            {
+                licenses.add( new DepTreeData.PomLicense(
+                    readReference( strings ), readReference( strings ), readReference( strings ), readReference( strings )
+                ) );
+            }
+            return new DepTreeData.Pom(
+                readReference( strings ), readReference( strings ), readReference( strings ),
+                readReference( strings ), readReference( strings ), licenses
+            );
+        }
+
+        /**
+         * @return A table size or element count, bounded by the snapshot size so that corrupt ones fail before allocating
+         */
+        private int readCount()
+            throws IOException
+        {
+            int count = readVarint();
+            if( count < 0 || count > bytes.length )
+            {
+                throw new IOException( "Corrupt dependency tree snapshot, invalid count " + count + " at " + position );
+            }
+            return count;
+        }
+
+        private <T> T readReference( T[] table )
+            throws IOException
+        {
+            int index = readVarint();
+            if( index < 0 || index >= table.length )
+            {
+                throw invalidReference( index, table.length );
+            }
+            return table[ index ];
+        }
+
+        private IOException invalidReference( int index, int tableSize )
+        {
+            return new IOException(
+                "Corrupt dependency tree snapshot, reference " + index + " out of " + tableSize + " at " + position
+            );
+        }
+
+        private int readVarint()
+            throws IOException
+        {
+            int value = 0;
+            for( int shift = 0; shift < 32; shift += 7 )
+            {
+                skip( 1 );
+                byte b = bytes[ position - 1 ];
+                value |= ( b & 0x7F ) << shift;
+                if( b >= 0 )
+                {
+                    return value;
+                }
+            }
+            throw new IOException( "Corrupt dependency tree snapshot, varint too long at " + position );
+        }
+
+        private String readString()
+            throws IOException
+        {
+            int length = readVarint();
+            int offset = position;
+            skip( length );
+            return new String( bytes, offset, length, StandardCharsets.UTF_8 );
+        }
+
+        private void skip( int length )
+            throws IOException
+        {
+            if( length < 0 || length > bytes.length - position )
+            {
+                throw new IOException( "Truncated dependency tree snapshot at " + position + " of " + bytes.length );
+            }
+            position += length;
+        }
+    }
+
+    /**
+     * Growable byte buffer with varint support.
+     */
+    private static final class Buffer
+    {
+        private byte[] bytes = new byte[ 4096 ];
+        private int size;
+
+        private void writeVarint( int value )
+        {
+            ensureCapacity( 5 );
+            while( ( value & ~0x7F ) != 0 )
+            {
+                bytes[ size++ ] = (byte) ( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+            bytes[ size++ ] = (byte) value;
+        }
+
+        private void writeString( String string )
+        {
+            byte[] encoded = string.getBytes( StandardCharsets.UTF_8 );
+            writeVarint( encoded.length );
+            write( encoded, 0, encoded.length );
+        }
+
+        private void write( byte[] source, int offset, int length )
+        {
+            ensureCapacity( length );
+            System.arraycopy( source, offset, bytes, size, length );
+            size += length;
+        }
+
+        private void ensureCapacity( int length )
+        {
+            if( size + length > bytes.length )
+            {
+                bytes = Arrays.copyOf( bytes, Math.max( bytes.length * 2, size + length ) );
+            }
+        }
+
+        private void writeTo( OutputStream output )
+            throws IOException
+        {
+            output.write( bytes, 0, size );
+        }
+    }
+
+    private static MessageDigest sha1()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-1" );
+        }
+        catch( NoSuchAlgorithmException ex )
+        {
+            throw new IllegalStateException( ex );
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Mergeable analysis of the nodes of a dependency tree, see {@link DepTree#collect(DepTreeCollector)}.
+ * <p>
+ * Nodes are split in partitions, each partition is accumulated into its own container, possibly concurrently,
+ * and containers are combined in node order, the result is hence the same as a sequential accumulation.
+ * Artifacts facets needed by the analysis should be loaded beforehand, see {@link DepTreeData.Facet}.
+ *
+ * @param <A> Mutable accumulation container
+ * @param <R> Result
+ */
+public interface DepTreeCollector<A, R>
+{
+    /**
+     * @return A new empty container
+     */
+    A supply();
+
+    void accumulate( A container, DepTreeData data );
+
+    /**
+     * @param left  Container of the nodes preceding the ones of the right container
+     * @param right Container of the nodes following the ones of the left container
+     * @return The combined container, either one of the given containers or a new one
+     */
+    A combine( A left, A right );
+
+    R finish( A container );
+
+    /**
+     * Nodes are only accumulated concurrently when these facets of all their artifacts are already loaded, they are
+     * accumulated sequentially in the calling thread otherwise so that artifact sources are never called
+     * concurrently.
+     *
+     * @return Facets of the artifacts read by the analysis
+     */
+    default Set<DepTreeData.Facet> getFacets()
+    {
+        return EnumSet.allOf( DepTreeData.Facet.class );
+    }
+}
@@ -86,14 +86,97 @@ public final class DepTreeData
         return Objects.equals( this.artifacts, other.artifacts );
     }
 
+    /**
+     * Facets of artifacts licensing data.
+     * <p>
+     * Tasks declare the facets they need, these are extracted while loading the dependency tree.
+     * Other facets are only extracted on first access.
+     */
+    public enum Facet
+    {
+        /**
+         * Detected licenses, see {@link LicenseDetection}.
+         */
+        LICENSES,
+        /**
+         * Organization, name, version and url, from manifest and POM.
+         */
+        ATTRIBUTION,
+        /**
+         * License files embedded in the artifact.
+         */
+        LICENSE_FILES
+    }
+
+    /**
+     * Source of the lazily extracted facets of an artifact.
+     */
+    public interface ArtifactSource
+    {
+        Manifest loadManifest();
+
+        /**
+         * @return The POM embedded in the artifact, without resolving anything, {@literal null} if none
+         */
+        Pom loadEmbeddedPom();
+
+        Pom loadPom();
+
+        Collection<SomeFile> loadLicenseFiles();
+    }
+
+    /**
+     * Artifact metadata, extracted lazily.
+     * <p>
+     * Artifacts are identified by their coordinates and, when known, the checksum of their file, see
+     * {@link #getIdentity()}. Hashing and equality only use that precomputed identity so that set and map operations
+     * are cheap and never extract facets, use {@link #structurallyEquals(Artifact)} to compare all metadata.
+     */
     public static final class Artifact
     {
+        /**
+         * Source of the facets that weren't recorded in a decoded snapshot.
+         */
+        private static final ArtifactSource UNRECORDED = new ArtifactSource()
+        {
+            @Override
+            public Manifest loadManifest()
+            {
+                return Manifest.EMPTY;
+            }
+
+            @Override
+            public Pom loadEmbeddedPom()
+            {
+                return null;
+            }
+
+            @Override
+            public Pom loadPom()
+            {
+                return new Pom( null, null, null, null, null );
+            }
+
+            @Override
+            public Collection<SomeFile> loadLicenseFiles()
+            {
+                return Collections.emptyList();
+            }
+        };
+
         private final String coordinates;
-        private final Manifest manifest;
-        private final Pom pom;
-        private final Set<SomeFile> licenseFiles = new LinkedHashSet<>();
+        private final String checksum;
+        private final String identity;
+        private final int identityHash;
         private final String overridenLicense;
-        private final Set<License> detectedLicenses = new LinkedHashSet<>();
+        private final LicenseDetection licenseDetection;
+        private ArtifactSource source;
+        private Manifest manifest;
+        private boolean embeddedPomLoaded;
+        private Pom embeddedPom;
+        private Pom pom;
+        private Set<SomeFile> licenseFiles;
+        private LicenseDetection.Detection detection;
 
         public Artifact( String coordinates,
                          Manifest manifest,
@@ -102,110 +185,163 @@ public final class DepTreeData
                          String overridenLicense )
         {
             this.coordinates = coordinates;
+            this.checksum = null;
+            this.identity = identityOf( coordinates, null );
+            this.identityHash = identity.hashCode();
             this.manifest = manifest;
+            this.embeddedPomLoaded = true;
+            this.embeddedPom = pom;
             this.pom = pom;
+            this.licenseFiles = new LinkedHashSet<>();
             if( licenseFiles != null )
             {
                 this.licenseFiles.addAll( licenseFiles );
             }
             this.overridenLicense = overridenLicense;
-            detectLicenses();
+            this.licenseDetection = LicenseDetection.DEFAULT;
+        }
+
+        /**
+         * Artifact decoded from a snapshot, see {@link DepTreeCodec}.
+         * Facets that weren't recorded, given as {@literal null}, are empty.
+         */
+        Artifact( String coordinates,
+                  String checksum,
+                  Manifest manifest,
+                  boolean embeddedPomLoaded,
+                  Pom embeddedPom,
+                  Pom pom,
+                  Collection<SomeFile> licenseFiles,
+                  String overridenLicense,
+                  LicenseDetection.Detection detection,
+                  LicenseDetection licenseDetection )
+        {
+            this.coordinates = coordinates;
+            this.checksum = checksum;
+            this.identity = identityOf( coordinates, checksum );
+            this.identityHash = identity.hashCode();
+            this.source = UNRECORDED;
+            this.manifest = manifest;
+            this.embeddedPomLoaded = embeddedPomLoaded;
+            this.embeddedPom = embeddedPom;
+            this.pom = pom;
+            this.licenseFiles = licenseFiles != null ? new LinkedHashSet<>( licenseFiles ) : null;
+            this.overridenLicense = overridenLicense;
+            this.licenseDetection = licenseDetection;
+            this.detection = detection;
         }
 
-        private void detectLicenses()
+        /**
+         * Artifact whose manifest, POMs and license files are extracted from the given source on first access.
+         *
+         * @param checksum SHA-1 checksum of the artifact file, {@literal null} if unknown
+         */
+        public Artifact( String coordinates,
+                         String checksum,
+                         ArtifactSource source,
+                         String overridenLicense,
+                         LicenseDetection licenseDetection )
         {
-            License mfLicense = License.valueOfLicenseName( manifest.license );
-            if( mfLicense != null )
-            {
-                detectedLicenses.add( mfLicense );
-            }
-            License mfLicenseUrl = License.valueOfLicenseUrl( manifest.license );
-            if( mfLicenseUrl != null )
-            {
-                detectedLicenses.add( mfLicenseUrl );
-            }
-            for( DepTreeData.PomLicense pomLicense : pom.licenses )
+            this.coordinates = coordinates;
+            this.checksum = checksum;
+            this.identity = identityOf( coordinates, checksum );
+            this.identityHash = identity.hashCode();
+            this.source = source;
+            this.overridenLicense = overridenLicense;
+            this.licenseDetection = licenseDetection;
+        }
+
+        /**
+         * Extract the given facets now.
+         */
+        public void load( Set<Facet> facets )
+        {
+            if( facets.contains( Facet.LICENSES ) )
             {
-                License nameLicense = License.valueOfLicenseName( pomLicense.name );
-                if( nameLicense != null )
-                {
-                    detectedLicenses.add( nameLicense );
-                }
-                License urlLicense = License.valueOfLicenseUrl( pomLicense.url );
-                if( urlLicense != null )
-                {
-                    detectedLicenses.add( urlLicense );
-                }
+                getDetectedLicenses();
             }
-            License ovLicense = License.valueOfLicenseName( overridenLicense );
-            if( ovLicense != null )
+            if( facets.contains( Facet.ATTRIBUTION ) )
             {
-                detectedLicenses.add( ovLicense );
+                getManifest();
+                getPom();
             }
-            License ovLicenseUrl = License.valueOfLicenseUrl( overridenLicense );
-            if( ovLicenseUrl != null )
+            if( facets.contains( Facet.LICENSE_FILES ) )
             {
-                detectedLicenses.add( ovLicenseUrl );
+                getLicenseFiles();
             }
         }
 
         public String getOrganization()
         {
-            if( StringUtils.isNotEmpty( pom.organization ) )
+            Pom thePom = getPom();
+            if( StringUtils.isNotEmpty( thePom.organization ) )
+            {
+                return thePom.organization;
+            }
+            Manifest theManifest = getManifest();
+            if( StringUtils.isNotEmpty( theManifest.vendor ) )
             {
-                return pom.organization;
+                return theManifest.vendor;
             }
-            if( StringUtils.isNotEmpty( manifest.vendor ) )
+            LicenseDatabase.Entry entry = licenseDetection.findInDatabase( coordinates );
+            if( entry != null && entry.getOrganization() != null )
             {
-                return manifest.vendor;
+                return entry.getOrganization();
             }
             return "Unknown Organization";
         }
 
         public String getOrganizationUrl()
         {
-            if( StringUtils.isNotEmpty( pom.organizationUrl ) )
+            Pom thePom = getPom();
+            if( StringUtils.isNotEmpty( thePom.organizationUrl ) )
             {
-                return pom.organizationUrl;
+                return thePom.organizationUrl;
             }
             return "";
         }
 
         public String getName()
         {
-            if( StringUtils.isNotEmpty( pom.name ) )
+            Pom thePom = getPom();
+            if( StringUtils.isNotEmpty( thePom.name ) )
             {
-                return pom.name;
+                return thePom.name;
             }
-            if( StringUtils.isNotEmpty( manifest.name ) )
+            Manifest theManifest = getManifest();
+            if( StringUtils.isNotEmpty( theManifest.name ) )
             {
-                return manifest.name;
+                return theManifest.name;
             }
             return "Unknown Name";
         }
 
         public String getVersion()
         {
-            if( StringUtils.isNotEmpty( pom.version ) )
+            Pom thePom = getPom();
+            if( StringUtils.isNotEmpty( thePom.version ) )
             {
-                return pom.version;
+                return thePom.version;
             }
-            if( StringUtils.isNotEmpty( manifest.version ) )
+            Manifest theManifest = getManifest();
+            if( StringUtils.isNotEmpty( theManifest.version ) )
             {
-                return manifest.version;
+                return theManifest.version;
             }
             return "";
         }
 
         public String getUrl()
         {
-            if( StringUtils.isNotEmpty( pom.url ) )
+            Pom thePom = getPom();
+            if( StringUtils.isNotEmpty( thePom.url ) )
             {
-                return pom.url;
+                return thePom.url;
             }
-            if( StringUtils.isNotEmpty( manifest.url ) )
+            Manifest theManifest = getManifest();
+            if( StringUtils.isNotEmpty( theManifest.url ) )
             {
-                return manifest.url;
+                return theManifest.url;
             }
             return "";
         }
@@ -215,28 +351,186 @@ public final class DepTreeData
             return coordinates;
         }
 
+        /**
+         * @return SHA-1 checksum of the artifact file, {@literal null} if unknown
+         */
+        public String getChecksum()
+        {
+            return checksum;
+        }
+
+        /**
+         * @return Coordinates, followed by the checksum of the artifact file when known
+         */
+        public String getIdentity()
+        {
+            return identity;
+        }
+
+        private static String identityOf( String coordinates, String checksum )
+        {
+            return checksum == null ? coordinates : coordinates + '@' + checksum;
+        }
+
+        public String getOverridenLicense()
+        {
+            return overridenLicense;
+        }
+
+        public synchronized Manifest getManifest()
+        {
+            if( manifest == null )
+            {
+                Manifest loaded = source.loadManifest();
+                manifest = loaded != null ? loaded : Manifest.EMPTY;
+                releaseSourceIfLoaded();
+            }
+            return manifest;
+        }
+
+        /**
+         * @return The POM embedded in the artifact, {@literal null} if none
+         */
+        public synchronized Pom getEmbeddedPom()
+        {
+            if( !embeddedPomLoaded )
+            {
+                embeddedPom = source.loadEmbeddedPom();
+                embeddedPomLoaded = true;
+                releaseSourceIfLoaded();
+            }
+            return embeddedPom;
+        }
+
+        public synchronized Pom getPom()
+        {
+            if( pom == null )
+            {
+                pom = source.loadPom();
+                releaseSourceIfLoaded();
+            }
+            return pom;
+        }
+
+        public synchronized Set<SomeFile> getLicenseFiles()
+        {
+            if( licenseFiles == null )
+            {
+                Set<SomeFile> loaded = new LinkedHashSet<>();
+                Collection<SomeFile> files = source.loadLicenseFiles();
+                if( files != null )
+                {
+                    loaded.addAll( files );
+                }
+                licenseFiles = loaded;
+                releaseSourceIfLoaded();
+            }
+            return Collections.unmodifiableSet( licenseFiles );
+        }
+
         public Set<License> getDetectedLicenses()
         {
-            return Collections.unmodifiableSet( detectedLicenses );
+            return getDetection().getLicenses();
+        }
+
+        /**
+         * @return The tier that detected the licenses of this artifact, {@literal null} if none were detected.
+         *         Licenses from {@link LicenseDetection.Tier#DATABASE} are precomputed, not scanned from the artifact.
+         */
+        public LicenseDetection.Tier getLicenseTier()
+        {
+            return getDetection().getTier();
+        }
+
+        /**
+         * Detect licenses without resolving any POM, see {@link LicenseDetection#detectWithoutResolution(Artifact)}.
+         *
+         * @return {@literal false} if licenses can only be detected by resolving POMs or reading license files
+         */
+        public synchronized boolean detectLicensesWithoutResolution()
+        {
+            if( detection == null )
+            {
+                detection = licenseDetection.detectWithoutResolution( this );
+            }
+            return detection != null;
+        }
+
+        synchronized LicenseDetection.Detection getDetection()
+        {
+            if( detection == null )
+            {
+                detection = licenseDetection.detect( this );
+            }
+            return detection;
+        }
+
+        /**
+         * @return Whether the given facets are loaded, or can be without extracting anything
+         */
+        synchronized boolean isLoaded( Set<Facet> facets )
+        {
+            if( source == null || source == UNRECORDED )
+            {
+                return true;
+            }
+            if( facets.contains( Facet.LICENSES ) && detection == null )
+            {
+                return false;
+            }
+            if( facets.contains( Facet.ATTRIBUTION ) && ( manifest == null || pom == null ) )
+            {
+                return false;
+            }
+            return !facets.contains( Facet.LICENSE_FILES ) || licenseFiles != null;
+        }
+
+        /**
+         * @return Whether the embedded POM was already looked for, {@link #getEmbeddedPom()} never extracts it then
+         */
+        synchronized boolean isEmbeddedPomLoaded()
+        {
+            return embeddedPomLoaded;
         }
 
+        private void releaseSourceIfLoaded()
+        {
+            if( manifest != null && embeddedPomLoaded && pom != null && licenseFiles != null )
+            {
+                source = null;
+            }
+        }
+
+        /**
+         * Only print the facets already extracted, printing never extracts any.
+         */
         @Override
-        public String toString()
+        public synchronized String toString()
         {
-            return "Artifact{" + coordinates + ", " + manifest + ", " + pom + ", " + licenseFiles + ", "
-                   + detectedLicenses + '}';
+            StringBuilder string = new StringBuilder( "Artifact{" ).append( coordinates );
+            if( manifest != null )
+            {
+                string.append( ", " ).append( manifest );
+            }
+            if( pom != null )
+            {
+                string.append( ", " ).append( pom );
+            }
+            if( licenseFiles != null )
+            {
+                string.append( ", " ).append( licenseFiles );
+            }
+            if( detection != null )
+            {
+                string.append( ", " ).append( detection.getLicenses() );
+            }
+            return string.append( '}' ).toString();
         }
 
         @Override
         public int hashCode()
         {
-            int hash = 3;
-            hash = 89 * hash + Objects.hashCode( this.coordinates );
-            hash = 89 * hash + Objects.hashCode( this.manifest );
-            hash = 89 * hash + Objects.hashCode( this.pom );
-            hash = 89 * hash + Objects.hashCode( this.licenseFiles );
-            hash = 89 * hash + Objects.hashCode( this.detectedLicenses );
-            return hash;
+            return identityHash;
         }
 
         @Override
@@ -255,23 +549,39 @@ public final class DepTreeData
                 return false;
             }
             final Artifact other = (Artifact) obj;
+            return identityHash == other.identityHash && identity.equals( other.identity );
+        }
+
+        /**
+         * Compare all metadata of the artifacts, extracting their facets if needed.
+         */
+        public boolean structurallyEquals( Artifact other )
+        {
+            if( other == this )
+            {
+                return true;
+            }
+            if( other == null )
+            {
+                return false;
+            }
             if( !Objects.equals( this.coordinates, other.coordinates ) )
             {
                 return false;
             }
-            if( !Objects.equals( this.manifest, other.manifest ) )
+            if( !Objects.equals( this.getManifest(), other.getManifest() ) )
             {
                 return false;
             }
-            if( !Objects.equals( this.pom, other.pom ) )
+            if( !Objects.equals( this.getPom(), other.getPom() ) )
             {
                 return false;
             }
-            if( !Objects.equals( this.licenseFiles, other.licenseFiles ) )
+            if( !Objects.equals( this.getLicenseFiles(), other.getLicenseFiles() ) )
             {
                 return false;
             }
-            return Objects.equals( this.detectedLicenses, other.detectedLicenses );
+            return Objects.equals( this.getDetectedLicenses(), other.getDetectedLicenses() );
         }
     }
 
@@ -294,6 +604,31 @@ public final class DepTreeData
             this.license = license;
         }
 
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getVersion()
+        {
+            return version;
+        }
+
+        public String getVendor()
+        {
+            return vendor;
+        }
+
+        public String getUrl()
+        {
+            return url;
+        }
+
+        public String getLicense()
+        {
+            return license;
+        }
+
         @Override
         public String toString()
         {
@@ -380,6 +715,36 @@ public final class DepTreeData
             licenses.add( license );
         }
 
+        public String getOrganization()
+        {
+            return organization;
+        }
+
+        public String getOrganizationUrl()
+        {
+            return organizationUrl;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getVersion()
+        {
+            return version;
+        }
+
+        public String getUrl()
+        {
+            return url;
+        }
+
+        public Set<PomLicense> getLicenses()
+        {
+            return Collections.unmodifiableSet( licenses );
+        }
+
         @Override
         public String toString()
         {
@@ -446,6 +811,26 @@ public final class DepTreeData
             this.comments = comments;
         }
 
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getUrl()
+        {
+            return url;
+        }
+
+        public String getDistribution()
+        {
+            return distribution;
+        }
+
+        public String getComments()
+        {
+            return comments;
+        }
+
         @Override
         public String toString()
         {
@@ -508,6 +893,21 @@ public final class DepTreeData
             this.content = content;
         }
 
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getOriginalPath()
+        {
+            return originalPath;
+        }
+
+        public String getContent()
+        {
+            return content;
+        }
+
         @Override
         public String toString()
         {
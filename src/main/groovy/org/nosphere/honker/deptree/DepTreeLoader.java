@@ -15,10 +15,28 @@
  */
 package org.nosphere.honker.deptree;
 
+import java.util.Collections;
+
 /**
  * DepTree Loader.
  */
 public interface DepTreeLoader
 {
     DepTree load();
+
+    /**
+     * Push the dependency tree nodes to the given visitor as they are loaded.
+     * <p>
+     * Streamed nodes don't reference their children and are not retained once visited,
+     * visitors should only keep what they need from them.
+     * This default implementation loads the whole tree first.
+     *
+     * @return The dependency graph, roots and edges only
+     */
+    default DepTree stream( DepTreeVisitor visitor )
+    {
+        DepTree depTree = load();
+        depTree.accept( visitor );
+        return new DepTree( Collections.<DepTreeNode>emptyList(), depTree.getRoots(), depTree.getEdges() );
+    }
 }
@@ -23,4 +23,9 @@ import java.io.File;
 public interface DepTreePomLoader
 {
     DepTreeData.Pom load( File artifactFile, Gav gav );
+
+    /**
+     * @return The POM embedded in the artifact, without its parents, {@literal null} if none
+     */
+    DepTreeData.Pom loadEmbedded( File artifactFile );
 }
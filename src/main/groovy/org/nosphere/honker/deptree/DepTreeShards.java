@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Deterministic partitioning of dependency trees into shards, and merging of the partial trees of all shards.
+ * <p>
+ * Dependencies are assigned to a shard by consistent hash of their coordinates, so that every shard of a given count
+ * holds the same dependencies on every machine, and few dependencies move when the count changes.
+ * A partial tree holds the nodes of its shard only, flattened, along with the complete roots and edges of the graph.
+ * <p>
+ * Partial trees of the configurations checked by one shard are written together, each as a {@link DepTreeCodec}
+ * snapshot following the names of the configurations that resolve to it:
+ * <pre>
+ * "HKSH" magic, format version, shard index, shard count, trees count
+ * for each tree: configuration names count and names, snapshot length and bytes
+ * </pre>
+ */
+public final class DepTreeShards
+{
+    private static final int MAGIC = 0x484B5348;
+    private static final int FORMAT_VERSION = 1;
+
+    private DepTreeShards()
+    {
+    }
+
+    /**
+     * @return Index of the shard of the given dependency coordinates
+     */
+    public static int shardOf( String coordinates, int shardCount )
+    {
+        return Hashing.consistentHash( Hashing.murmur3_128().hashString( coordinates, StandardCharsets.UTF_8 ),
+                                       shardCount );
+    }
+
+    /**
+     * Rebuild a complete tree from the partial trees of all the shards of a graph.
+     * <p>
+     * The graph is walked from its roots the same way it is loaded, dependencies reachable through several paths
+     * being only present once, so that the merged tree is visited in the same order as a tree loaded in one pass.
+     */
+    public static DepTree merge( Collection<DepTree> partials )
+    {
+        if( partials.isEmpty() )
+        {
+            return new DepTree( Collections.<DepTreeNode>emptyList() );
+        }
+        Map<String, DepTreeData> nodes = new HashMap<>();
+        for( DepTree partial : partials )
+        {
+            for( DepTreeData data : partial.getNodes() )
+            {
+                nodes.put( data.getCoordinates(), data );
+            }
+        }
+        DepTree graph = partials.iterator().next();
+        Set<String> visited = new HashSet<>();
+        List<DepTreeNode> children = new ArrayList<>();
+        for( String root : graph.getRoots() )
+        {
+            DepTreeNode node = rebuild( null, root, nodes, graph.getEdges(), visited );
+            if( node != null )
+            {
+                children.add( node );
+            }
+        }
+        return new DepTree( children, graph.getRoots(), graph.getEdges() );
+    }
+
+    private static DepTreeNode rebuild( DepTreeNode parent,
+                                        String coordinates,
+                                        Map<String, DepTreeData> nodes,
+                                        Map<String, Set<String>> edges,
+                                        Set<String> visited )
+    {
+        DepTreeData data = nodes.get( coordinates );
+        if( data == null || !visited.add( coordinates ) )
+        {
+            // Not part of the tree, e.g. the project itself, or already present
+            return null;
+        }
+        DepTreeNode node = parent == null ? new DepTreeNode( data ) : new DepTreeNode( parent, data );
+        Set<String> children = edges.get( coordinates );
+        if( children != null )
+        {
+            for( String child : children )
+            {
+                rebuild( node, child, nodes, edges, visited );
+            }
+        }
+        return node;
+    }
+
+    public static void write( Shard shard, OutputStream output )
+        throws IOException
+    {
+        write( shard, output, EnumSet.allOf( DepTreeData.Facet.class ) );
+    }
+
+    /**
+     * @param facets Facets of the artifacts to write, see {@link DepTreeCodec#write(DepTree, OutputStream, Set)}
+     */
+    public static void write( Shard shard, OutputStream output, Set<DepTreeData.Facet> facets )
+        throws IOException
+    {
+        DataOutputStream data = new DataOutputStream( output );
+        data.writeInt( MAGIC );
+        data.writeByte( FORMAT_VERSION );
+        data.writeInt( shard.index );
+        data.writeInt( shard.count );
+        data.writeInt( shard.trees.size() );
+        for( Map.Entry<List<String>, DepTree> entry : shard.trees.entrySet() )
+        {
+            data.writeInt( entry.getKey().size() );
+            for( String name : entry.getKey() )
+            {
+                data.writeUTF( name );
+            }
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            DepTreeCodec.write( entry.getValue(), snapshot, facets );
+            data.writeInt( snapshot.size() );
+            snapshot.writeTo( data );
+        }
+        data.flush();
+    }
+
+    /**
+     * @param licenseDetection License detection of the decoded artifacts, see {@link DepTreeCodec}
+     */
+    public static Shard read( InputStream input, LicenseDetection licenseDetection )
+        throws IOException
+    {
+        DataInputStream data = new DataInputStream( input );
+        if( data.readInt() != MAGIC )
+        {
+            throw new IOException( "Not a dependency tree shard" );
+        }
+        int version = data.readUnsignedByte();
+        if( version != FORMAT_VERSION )
+        {
+            throw new IOException( "Unsupported dependency tree shard format version: " + version );
+        }
+        int index = data.readInt();
+        int count = data.readInt();
+        Map<List<String>, DepTree> trees = new LinkedHashMap<>();
+        int treesCount = data.readInt();
+        for( int idx = 0; idx < treesCount; idx++ )
+        {
+            List<String> names = new ArrayList<>();
+            int namesCount = data.readInt();
+            for( int nameIdx = 0; nameIdx < namesCount; nameIdx++ )
+            {
+                names.add( data.readUTF() );
+            }
+            byte[] snapshot = new byte[ data.readInt() ];
+            data.readFully( snapshot );
+            trees.put( names, DepTreeCodec.read( new ByteArrayInputStream( snapshot ), licenseDetection ) );
+        }
+        return new Shard( index, count, trees );
+    }
+
+    /**
+     * Partial trees of one shard, keyed by the names of the configurations that resolve to them.
+     */
+    public static final class Shard
+    {
+        private final int index;
+        private final int count;
+        private final Map<List<String>, DepTree> trees;
+
+        public Shard( int index, int count, Map<List<String>, DepTree> trees )
+        {
+            this.index = index;
+            this.count = count;
+            this.trees = Collections.unmodifiableMap( new LinkedHashMap<>( trees ) );
+        }
+
+        public int getIndex()
+        {
+            return index;
+        }
+
+        public int getCount()
+        {
+            return count;
+        }
+
+        public Map<List<String>, DepTree> getTrees()
+        {
+            return trees;
+        }
+    }
+}
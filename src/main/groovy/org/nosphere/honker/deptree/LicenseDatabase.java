@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.nosphere.honker.License;
+
+/**
+ * Precomputed licenses of well-known modules.
+ * <p>
+ * Entries map {@literal group:module}, optionally restricted to a version range, to a license and an organization.
+ * They are stored sorted by module in a compact binary form:
+ * <pre>
+ * "HKLD" magic, format version byte
+ * string table: count, then modified UTF-8 strings
+ * entries: count, then for each entry the string indexes of its module, version range, license and organization
+ * </pre>
+ * Lookups are binary searches over the sorted modules and don't do any I/O once the database is read.
+ * <p>
+ * The text source of a database has one entry per line, e.g. {@literal junit:junit:[4.0,) | EPL | JUnit},
+ * lines starting with {@literal #} are comments.
+ * The license is a {@link License} constant, name or url.
+ */
+public final class LicenseDatabase
+{
+    public static final String BUILTIN_RESOURCE = "/org/nosphere/honker/license-database.bin";
+
+    private static final int MAGIC = 0x484B4C44;
+    private static final int FORMAT_VERSION = 1;
+    private static LicenseDatabase builtin;
+
+    /**
+     * @return The database bundled with honker
+     */
+    public static synchronized LicenseDatabase builtin()
+    {
+        if( builtin == null )
+        {
+            InputStream input = LicenseDatabase.class.getResourceAsStream( BUILTIN_RESOURCE );
+            if( input == null )
+            {
+                throw new IllegalStateException( "Builtin license database not found: " + BUILTIN_RESOURCE );
+            }
+            try
+            {
+                builtin = read( input );
+            }
+            catch( IOException ex )
+            {
+                throw new IllegalStateException( "Unable to read builtin license database", ex );
+            }
+            finally
+            {
+                IOUtils.closeQuietly( input );
+            }
+        }
+        return builtin;
+    }
+
+    public static LicenseDatabase read( File file )
+        throws IOException
+    {
+        InputStream input = new FileInputStream( file );
+        try
+        {
+            return read( input );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( input );
+        }
+    }
+
+    public static LicenseDatabase read( InputStream input )
+        throws IOException
+    {
+        MessageDigest sha1 = sha1();
+        DataInputStream data = new DataInputStream(
+            new DigestInputStream( new BufferedInputStream( input ), sha1 )
+        );
+        if( data.readInt() != MAGIC )
+        {
+            throw new IOException( "Not a license database" );
+        }
+        int version = data.readUnsignedByte();
+        if( version != FORMAT_VERSION )
+        {
+            throw new IOException( "Unsupported license database format version: " + version );
+        }
+        String[] strings = new String[ data.readInt() ];
+        for( int idx = 0; idx < strings.length; idx++ )
+        {
+            strings[ idx ] = data.readUTF();
+        }
+        List<Entry> entries = new ArrayList<>();
+        int count = data.readInt();
+        for( int idx = 0; idx < count; idx++ )
+        {
+            String module = strings[ data.readInt() ];
+            String range = strings[ data.readInt() ];
+            String license = strings[ data.readInt() ];
+            String organization = strings[ data.readInt() ];
+            entries.add( new Entry(
+                module,
+                StringUtils.isEmpty( range ) ? null : VersionRange.parse( range ),
+                License.valueOf( license ),
+                StringUtils.trimToNull( organization )
+            ) );
+        }
+        return new LicenseDatabase( entries, hex( sha1.digest() ) );
+    }
+
+    /**
+     * Parse the text source of a database.
+     */
+    public static List<Entry> parse( Reader reader )
+        throws IOException
+    {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader lines = new BufferedReader( reader );
+        int lineNumber = 0;
+        for( String line = lines.readLine(); line != null; line = lines.readLine() )
+        {
+            lineNumber++;
+            line = line.trim();
+            if( line.isEmpty() || line.startsWith( "#" ) )
+            {
+                continue;
+            }
+            String[] fields = StringUtils.splitPreserveAllTokens( line, '|' );
+            String[] coordinates = fields[ 0 ].trim().split( ":", 3 );
+            License license = fields.length > 1 ? parseLicense( fields[ 1 ].trim() ) : null;
+            if( coordinates.length < 2 || license == null )
+            {
+                throw new IOException( "Invalid license database entry at line " + lineNumber + ": " + line );
+            }
+            entries.add( new Entry(
+                coordinates[ 0 ] + ':' + coordinates[ 1 ],
+                coordinates.length > 2 ? VersionRange.parse( coordinates[ 2 ] ) : null,
+                license,
+                fields.length > 2 ? StringUtils.trimToNull( fields[ 2 ] ) : null
+            ) );
+        }
+        return entries;
+    }
+
+    /**
+     * Write the given entries in binary form, an entry replaces earlier ones with the same module and range.
+     */
+    public static void write( Collection<Entry> entries, OutputStream output )
+        throws IOException
+    {
+        Map<String, Entry> unique = new LinkedHashMap<>();
+        for( Entry entry : entries )
+        {
+            unique.put( entry.module + ' ' + entry.getRangeNotation(), entry );
+        }
+        List<Entry> sorted = new ArrayList<>( unique.values() );
+        Collections.sort( sorted, ENTRY_ORDER );
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        int[][] indexes = new int[ sorted.size() ][];
+        for( int idx = 0; idx < sorted.size(); idx++ )
+        {
+            Entry entry = sorted.get( idx );
+            indexes[ idx ] = new int[]
+            {
+                intern( strings, stringIndexes, entry.module ),
+                intern( strings, stringIndexes, entry.getRangeNotation() ),
+                intern( strings, stringIndexes, entry.license.name() ),
+                intern( strings, stringIndexes, StringUtils.defaultString( entry.organization ) )
+            };
+        }
+        DataOutputStream data = new DataOutputStream( output );
+        data.writeInt( MAGIC );
+        data.writeByte( FORMAT_VERSION );
+        data.writeInt( strings.size() );
+        for( String string : strings )
+        {
+            data.writeUTF( string );
+        }
+        data.writeInt( indexes.length );
+        for( int[] entry : indexes )
+        {
+            for( int index : entry )
+            {
+                data.writeInt( index );
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Ranged entries of a module come before its all versions entry so that they take precedence.
+     */
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>()
+    {
+        @Override
+        public int compare( Entry left, Entry right )
+        {
+            int comparison = left.module.compareTo( right.module );
+            if( comparison != 0 )
+            {
+                return comparison;
+            }
+            if( left.range == null || right.range == null )
+            {
+                return left.range == null ? ( right.range == null ? 0 : 1 ) : -1;
+            }
+            return left.getRangeNotation().compareTo( right.getRangeNotation() );
+        }
+    };
+
+    private final String[] modules;
+    private final List<Entry> entries;
+    private final String digest;
+
+    private LicenseDatabase( List<Entry> entries, String digest )
+    {
+        this.entries = Collections.unmodifiableList( entries );
+        this.modules = new String[ entries.size() ];
+        for( int idx = 0; idx < modules.length; idx++ )
+        {
+            modules[ idx ] = entries.get( idx ).module;
+        }
+        this.digest = digest;
+    }
+
+    public List<Entry> getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * @return SHA-1 of the binary form of this database
+     */
+    public String getDigest()
+    {
+        return digest;
+    }
+
+    /**
+     * @return The entry matching the given coordinates, {@literal null} if none
+     */
+    public Entry find( Gav gav )
+    {
+        String module = gav.getGroupId() + ':' + gav.getArtifactId();
+        int idx = Arrays.binarySearch( modules, module );
+        if( idx < 0 )
+        {
+            return null;
+        }
+        while( idx > 0 && modules[ idx - 1 ].equals( module ) )
+        {
+            idx--;
+        }
+        for( ; idx < modules.length && modules[ idx ].equals( module ); idx++ )
+        {
+            Entry entry = entries.get( idx );
+            if( entry.range == null || entry.range.contains( gav.getVersion() ) )
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static License parseLicense( String license )
+    {
+        for( License candidate : License.values() )
+        {
+            if( candidate.name().equals( license ) )
+            {
+                return candidate;
+            }
+        }
+        License byName = License.valueOfLicenseName( license );
+        return byName != null ? byName : License.valueOfLicenseUrl( license );
+    }
+
+    private static int intern( List<String> strings, Map<String, Integer> indexes, String string )
+    {
+        Integer index = indexes.get( string );
+        if( index == null )
+        {
+            index = strings.size();
+            strings.add( string );
+            indexes.put( string, index );
+        }
+        return index;
+    }
+
+    private static MessageDigest sha1()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "SHA-1" );
+        }
+        catch( NoSuchAlgorithmException ex )
+        {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    private static String hex( byte[] bytes )
+    {
+        StringBuilder hex = new StringBuilder( bytes.length * 2 );
+        for( byte b : bytes )
+        {
+            hex.append( String.format( "%02x", b ) );
+        }
+        return hex.toString();
+    }
+
+    public static final class Entry
+    {
+        private final String module;
+        private final VersionRange range;
+        private final License license;
+        private final String organization;
+
+        public Entry( String module, VersionRange range, License license, String organization )
+        {
+            this.module = module;
+            this.range = range;
+            this.license = license;
+            this.organization = organization;
+        }
+
+        /**
+         * @return {@literal group:module}
+         */
+        public String getModule()
+        {
+            return module;
+        }
+
+        /**
+         * @return Version range notation, empty for all versions
+         */
+        public String getRangeNotation()
+        {
+            return range == null ? "" : range.toString();
+        }
+
+        public License getLicense()
+        {
+            return license;
+        }
+
+        /**
+         * @return Organization, {@literal null} if unknown
+         */
+        public String getOrganization()
+        {
+            return organization;
+        }
+
+        @Override
+        public String toString()
+        {
+            return module + ( range == null ? "" : ":" + range ) + " | " + license.name()
+                   + ( organization == null ? "" : " | " + organization );
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.nosphere.honker.License;
+
+/**
+ * Ordered license detection pipeline.
+ * <p>
+ * Tiers are consulted in order, detection stops at the first tier that detects at least one license.
+ * Expensive tiers, such as resolving parent POMs or reading license files, are hence only run for artifacts
+ * whose licenses couldn't be detected by the cheaper ones.
+ * <p>
+ * The {@link Tier#DATABASE} tier only runs when a {@link LicenseDatabase} is set.
+ * License names that are not known exactly are matched approximately when a {@link LicenseNameMatcher} is set.
+ */
+public final class LicenseDetection
+{
+    public enum Tier
+    {
+        /**
+         * License override declared in the build.
+         */
+        OVERRIDE,
+        /**
+         * Precomputed license of well-known modules, looked up without any I/O, see {@link LicenseDatabase}.
+         */
+        DATABASE,
+        /**
+         * Licenses of the POM embedded in the artifact, parent POMs are not resolved.
+         */
+        EMBEDDED_POM,
+        /**
+         * {@literal Bundle-License} manifest header.
+         */
+        MANIFEST,
+        /**
+         * Licenses of the artifact POM and of its parent POMs, resolving them if needed.
+         */
+        POM_CHAIN,
+        /**
+         * Classification of the license files embedded in the artifact.
+         */
+        LICENSE_FILES
+    }
+
+    public static final LicenseDetection DEFAULT = new LicenseDetection( Arrays.asList( Tier.values() ) );
+
+    private final List<Tier> tiers;
+    private final LicenseDatabase database;
+    private final LicenseNameMatcher nameMatcher;
+
+    public LicenseDetection( List<Tier> tiers )
+    {
+        this( tiers, null, null );
+    }
+
+    public LicenseDetection( List<Tier> tiers, LicenseDatabase database, LicenseNameMatcher nameMatcher )
+    {
+        this.tiers = Collections.unmodifiableList( new ArrayList<>( new LinkedHashSet<>( tiers ) ) );
+        this.database = database;
+        this.nameMatcher = nameMatcher;
+    }
+
+    public List<Tier> getTiers()
+    {
+        return tiers;
+    }
+
+    /**
+     * @return The license database, {@literal null} if none
+     */
+    public LicenseDatabase getDatabase()
+    {
+        return database;
+    }
+
+    /**
+     * @return A copy of this detection using the given license database, {@literal null} for none
+     */
+    public LicenseDetection withDatabase( LicenseDatabase database )
+    {
+        return new LicenseDetection( tiers, database, nameMatcher );
+    }
+
+    /**
+     * @return The approximate license name matcher, {@literal null} if none
+     */
+    public LicenseNameMatcher getNameMatcher()
+    {
+        return nameMatcher;
+    }
+
+    /**
+     * @return A copy of this detection using the given approximate license name matcher, {@literal null} for none
+     */
+    public LicenseDetection withNameMatcher( LicenseNameMatcher nameMatcher )
+    {
+        return new LicenseDetection( tiers, database, nameMatcher );
+    }
+
+    /**
+     * @return The license database entry of the given artifact coordinates, {@literal null} if none
+     */
+    public LicenseDatabase.Entry findInDatabase( String coordinates )
+    {
+        if( database == null )
+        {
+            return null;
+        }
+        String[] parts = coordinates.split( ":" );
+        return parts.length < 3 ? null : database.find( new Gav( parts[ 0 ], parts[ 1 ], parts[ 2 ] ) );
+    }
+
+    /**
+     * @return Licenses detected by the first conclusive tier
+     */
+    public Detection detect( DepTreeData.Artifact artifact )
+    {
+        for( Tier tier : tiers )
+        {
+            Set<License> detected = detect( tier, artifact );
+            if( !detected.isEmpty() )
+            {
+                return new Detection( tier, detected );
+            }
+        }
+        return Detection.NONE;
+    }
+
+    /**
+     * Run the tiers preceding {@link Tier#POM_CHAIN} only, without resolving any POM.
+     * <p>
+     * A conclusive result is the same as the one of {@link #detect(DepTreeData.Artifact)}.
+     *
+     * @return Licenses detected by the first conclusive tier, {@literal null} if none of these tiers were conclusive
+     */
+    public Detection detectWithoutResolution( DepTreeData.Artifact artifact )
+    {
+        for( Tier tier : tiers )
+        {
+            if( tier == Tier.POM_CHAIN )
+            {
+                return null;
+            }
+            Set<License> detected = detect( tier, artifact );
+            if( !detected.isEmpty() )
+            {
+                return new Detection( tier, detected );
+            }
+        }
+        return Detection.NONE;
+    }
+
+    private Set<License> detect( Tier tier, DepTreeData.Artifact artifact )
+    {
+        Set<License> detected = new LinkedHashSet<>();
+        switch( tier )
+        {
+            case OVERRIDE:
+                addLicense( detected, artifact.getOverridenLicense() );
+                break;
+            case DATABASE:
+                LicenseDatabase.Entry entry = findInDatabase( artifact.getCoordinates() );
+                if( entry != null )
+                {
+                    detected.add( entry.getLicense() );
+                }
+                break;
+            case EMBEDDED_POM:
+                addPomLicenses( detected, artifact.getEmbeddedPom() );
+                break;
+            case MANIFEST:
+                addLicense( detected, artifact.getManifest().getLicense() );
+                break;
+            case POM_CHAIN:
+                addPomLicenses( detected, artifact.getPom() );
+                break;
+            case LICENSE_FILES:
+                for( DepTreeData.SomeFile licenseFile : artifact.getLicenseFiles() )
+                {
+                    License classified = LicenseTextClassifier.classify( licenseFile );
+                    if( classified != null )
+                    {
+                        detected.add( classified );
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException( "Unknown license detection tier: " + tier );
+        }
+        return detected;
+    }
+
+    private void addPomLicenses( Set<License> detected, DepTreeData.Pom pom )
+    {
+        if( pom == null )
+        {
+            return;
+        }
+        for( DepTreeData.PomLicense pomLicense : pom.getLicenses() )
+        {
+            License nameLicense = licenseOfName( pomLicense.getName() );
+            if( nameLicense != null )
+            {
+                detected.add( nameLicense );
+            }
+            License urlLicense = License.valueOfLicenseUrl( pomLicense.getUrl() );
+            if( urlLicense != null )
+            {
+                detected.add( urlLicense );
+            }
+        }
+    }
+
+    private void addLicense( Set<License> detected, String nameOrUrl )
+    {
+        License nameLicense = licenseOfName( nameOrUrl );
+        if( nameLicense != null )
+        {
+            detected.add( nameLicense );
+        }
+        License urlLicense = License.valueOfLicenseUrl( nameOrUrl );
+        if( urlLicense != null )
+        {
+            detected.add( urlLicense );
+        }
+    }
+
+    private License licenseOfName( String name )
+    {
+        License license = License.valueOfLicenseName( name );
+        if( license != null || nameMatcher == null || name == null || name.contains( "://" ) )
+        {
+            return license;
+        }
+        LicenseNameMatcher.Match match = nameMatcher.match( name );
+        return match == null ? null : match.getLicense();
+    }
+
+    /**
+     * Licenses detected for an artifact and the tier that detected them.
+     */
+    public static final class Detection
+    {
+        static final Detection NONE = new Detection( null, Collections.<License>emptySet() );
+
+        private final Tier tier;
+        private final Set<License> licenses;
+
+        Detection( Tier tier, Set<License> licenses )
+        {
+            this.tier = tier;
+            this.licenses = Collections.unmodifiableSet( licenses );
+        }
+
+        /**
+         * @return The tier that detected the licenses, {@literal null} if none were detected
+         */
+        public Tier getTier()
+        {
+            return tier;
+        }
+
+        /**
+         * @return Detected licenses, empty if none
+         */
+        public Set<License> getLicenses()
+        {
+            return licenses;
+        }
+    }
+}
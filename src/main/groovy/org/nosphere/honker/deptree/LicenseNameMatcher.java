@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+import org.nosphere.honker.License;
+
+/**
+ * Approximate matching of license names against the names of all {@link License}s.
+ * <p>
+ * Names are normalized to lower case words and compared by the Dice coefficient of their sets of character
+ * trigrams. Trigrams of all known names are indexed once in posting lists. A name above the threshold shares a
+ * minimum count of trigrams with the looked up name, itself truncated, hence at least one of its rarest trigrams
+ * past that count. A lookup only visits the postings of these rare trigrams and only scores the names found there,
+ * common trigrams such as the ones of {@literal license} are never used to find names.
+ * Names mentioning different version numbers never match, e.g. {@literal Apache License 1.1} doesn't match
+ * {@literal Apache License 2.0}.
+ * <p>
+ * Results are cached by name. Matches are recorded so that they can be reported, see {@link #drainMatches()}.
+ */
+public final class LicenseNameMatcher
+{
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static final int MAX_NAME_LENGTH = 128;
+    private static final int MAX_CACHED_NAMES = 4096;
+    private static final Pattern TRAILING_DOTS = Pattern.compile( "\\.+([^a-z0-9]|$)" );
+    private static final Pattern SEPARATORS = Pattern.compile( "[^a-z0-9.]+" );
+    private static final Pattern VERSION = Pattern.compile( "v?(\\d+(?:\\.\\d+)*)" );
+    private static final Pattern TRAILING_ZEROS = Pattern.compile( "(\\.0+)+$" );
+    private static final Match NO_MATCH = new Match( null, null, 0 );
+
+    private final double threshold;
+    private final List<String> names = new ArrayList<>();
+    private final List<License> licenses = new ArrayList<>();
+    private final List<Set<String>> trigramSets = new ArrayList<>();
+    private final List<String> versions = new ArrayList<>();
+    private final Map<String, int[]> postings = new HashMap<>();
+    private final Map<String, Match> cache = new ConcurrentHashMap<>();
+    private final Map<String, Match> matches = new LinkedHashMap<>();
+
+    public LicenseNameMatcher()
+    {
+        this( DEFAULT_THRESHOLD );
+    }
+
+    /**
+     * @param threshold Minimum similarity of a match, between 0 exclusive and 1 inclusive
+     */
+    public LicenseNameMatcher( double threshold )
+    {
+        if( threshold <= 0 || threshold > 1 )
+        {
+            throw new IllegalArgumentException( "License name similarity threshold must be in ]0,1]: " + threshold );
+        }
+        this.threshold = threshold;
+        Map<String, List<Integer>> index = new HashMap<>();
+        for( License license : License.values() )
+        {
+            for( String name : license.getNames() )
+            {
+                String normalized = normalize( name );
+                Set<String> trigrams = trigrams( normalized );
+                int id = names.size();
+                names.add( name );
+                licenses.add( license );
+                trigramSets.add( trigrams );
+                versions.add( versionsOf( normalized ) );
+                for( String trigram : trigrams )
+                {
+                    List<Integer> ids = index.get( trigram );
+                    if( ids == null )
+                    {
+                        ids = new ArrayList<>( 4 );
+                        index.put( trigram, ids );
+                    }
+                    ids.add( id );
+                }
+            }
+        }
+        for( Map.Entry<String, List<Integer>> entry : index.entrySet() )
+        {
+            postings.put( entry.getKey(), toArray( entry.getValue() ) );
+        }
+    }
+
+    private static int[] toArray( List<Integer> integers )
+    {
+        int[] array = new int[ integers.size() ];
+        for( int idx = 0; idx < array.length; idx++ )
+        {
+            array[ idx ] = integers.get( idx );
+        }
+        return array;
+    }
+
+    public double getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * @return The best match of the given name with a similarity above the threshold, {@literal null} if none
+     */
+    public Match match( String name )
+    {
+        if( StringUtils.isBlank( name ) )
+        {
+            return null;
+        }
+        String key = name.trim();
+        Match match = cache.get( key );
+        if( match == null )
+        {
+            match = search( key );
+            if( cache.size() < MAX_CACHED_NAMES )
+            {
+                cache.put( key, match );
+            }
+            if( match != NO_MATCH )
+            {
+                synchronized( matches )
+                {
+                    matches.put( key, match );
+                }
+            }
+        }
+        return match == NO_MATCH ? null : match;
+    }
+
+    /**
+     * @return Matches found since the last call, keyed by looked up name
+     */
+    public Map<String, Match> drainMatches()
+    {
+        synchronized( matches )
+        {
+            Map<String, Match> drained = new LinkedHashMap<>( matches );
+            matches.clear();
+            return drained;
+        }
+    }
+
+    private Match search( String name )
+    {
+        String normalized = normalize( StringUtils.left( name, MAX_NAME_LENGTH ) );
+        Set<String> trigrams = trigrams( normalized );
+        if( trigrams.isEmpty() )
+        {
+            return NO_MATCH;
+        }
+        String nameVersions = versionsOf( normalized );
+        Set<Integer> candidates = new TreeSet<>();
+        for( String trigram : rarestTrigrams( trigrams ) )
+        {
+            int[] ids = postings.get( trigram );
+            if( ids != null )
+            {
+                for( int id : ids )
+                {
+                    candidates.add( id );
+                }
+            }
+        }
+        int best = -1;
+        double bestScore = 0;
+        for( int id : candidates )
+        {
+            Set<String> candidateTrigrams = trigramSets.get( id );
+            int shared = 0;
+            for( String trigram : trigrams )
+            {
+                if( candidateTrigrams.contains( trigram ) )
+                {
+                    shared++;
+                }
+            }
+            double score = 2.0 * shared / ( trigrams.size() + candidateTrigrams.size() );
+            boolean better = score > bestScore || ( score == bestScore && id < best );
+            if( better && nameVersions.equals( versions.get( id ) ) )
+            {
+                best = id;
+                bestScore = score;
+            }
+        }
+        if( best < 0 || bestScore < threshold )
+        {
+            return NO_MATCH;
+        }
+        return new Match( licenses.get( best ), names.get( best ), bestScore );
+    }
+
+    /**
+     * A name with {@literal n} trigrams is above the threshold {@literal t} only if it shares at least
+     * {@literal t * n / (2 - t)} of them, hence at least one trigram among any {@literal n} minus that count plus one.
+     *
+     * @return The trigrams of the looked up name that any name above the threshold shares one of, rarest first
+     */
+    private List<String> rarestTrigrams( Set<String> trigrams )
+    {
+        List<String> byRarity = new ArrayList<>( trigrams );
+        Collections.sort( byRarity, new Comparator<String>()
+        {
+            @Override
+            public int compare( String left, String right )
+            {
+                return Integer.compare( postingSizeOf( left ), postingSizeOf( right ) );
+            }
+        } );
+        // Shave rounding errors off exact products
+        int minShared = Math.max( 1, (int) Math.ceil( threshold * trigrams.size() / ( 2 - threshold ) - 1e-9 ) );
+        return byRarity.subList( 0, trigrams.size() - minShared + 1 );
+    }
+
+    private int postingSizeOf( String trigram )
+    {
+        int[] ids = postings.get( trigram );
+        return ids == null ? 0 : ids.length;
+    }
+
+    /**
+     * Lower case words, other characters than letters, digits and version dots are separators.
+     */
+    private static String normalize( String name )
+    {
+        String words = TRAILING_DOTS.matcher( name.toLowerCase( Locale.US ) ).replaceAll( "$1" );
+        return SEPARATORS.matcher( words ).replaceAll( " " ).trim();
+    }
+
+    /**
+     * @return Version numbers mentioned in the normalized name, trailing zero components removed, e.g. 2 for 2.0
+     */
+    private static String versionsOf( String normalized )
+    {
+        Set<String> found = new TreeSet<>();
+        for( String word : normalized.split( " " ) )
+        {
+            Matcher matcher = VERSION.matcher( word );
+            if( matcher.matches() )
+            {
+                found.add( TRAILING_ZEROS.matcher( matcher.group( 1 ) ).replaceAll( "" ) );
+            }
+        }
+        return StringUtils.join( found, ' ' );
+    }
+
+    private static Set<String> trigrams( String normalized )
+    {
+        if( normalized.isEmpty() )
+        {
+            return Collections.emptySet();
+        }
+        String padded = ' ' + normalized + ' ';
+        Set<String> trigrams = new LinkedHashSet<>();
+        for( int idx = 0; idx + 3 <= padded.length(); idx++ )
+        {
+            trigrams.add( padded.substring( idx, idx + 3 ) );
+        }
+        return trigrams;
+    }
+
+    /**
+     * Approximate match of a license name.
+     */
+    public static final class Match
+    {
+        private final License license;
+        private final String name;
+        private final double score;
+
+        private Match( License license, String name, double score )
+        {
+            this.license = license;
+            this.name = name;
+            this.score = score;
+        }
+
+        public License getLicense()
+        {
+            return license;
+        }
+
+        /**
+         * @return The known name that matched
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return Similarity, between the threshold and 1
+         */
+        public double getScore()
+        {
+            return score;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format( Locale.US, "%s (%s, score %.2f)", name, license.name(), score );
+        }
+    }
+}
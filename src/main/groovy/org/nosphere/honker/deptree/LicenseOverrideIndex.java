@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Declarative license overrides, indexed by coordinates.
+ * <p>
+ * Supported notations, by order of precedence:
+ * <ul>
+ * <li>{@literal group:module:version} exact coordinates,</li>
+ * <li>{@literal group:module:[1.0,2.0)} version range of a module,</li>
+ * <li>{@literal group:module} all versions of a module,</li>
+ * <li>{@literal group:module-*} module glob, using {@literal *} and {@literal ?} wildcards,</li>
+ * <li>{@literal group.prefix} or {@literal group.prefix.*} group and its sub-groups, the longest prefix wins.</li>
+ * </ul>
+ * Exact coordinates and modules are hashed, version ranges and module globs are grouped by module and by group
+ * respectively, group prefixes are stored in a trie of group segments.
+ * Resolving the override of some coordinates hence doesn't depend on the number of overrides.
+ */
+public final class LicenseOverrideIndex
+{
+    private final Map<String, String> declared = new LinkedHashMap<>();
+    private final Map<String, String> exact = new HashMap<>();
+    private final Map<String, List<RangeOverride>> ranges = new HashMap<>();
+    private final Map<String, String> modules = new HashMap<>();
+    private final Map<String, List<GlobOverride>> globs = new HashMap<>();
+    private final GroupTrie groups = new GroupTrie();
+
+    public void add( String notation, String license )
+    {
+        if( StringUtils.isBlank( notation ) || StringUtils.isBlank( license ) )
+        {
+            throw new IllegalArgumentException( "Invalid license override: '" + notation + "' -> '" + license + "'" );
+        }
+        String[] parts = notation.trim().split( ":", 3 );
+        switch( parts.length )
+        {
+            case 1:
+                groups.put( StringUtils.removeEnd( StringUtils.removeEnd( parts[ 0 ], "*" ), "." ), license );
+                break;
+            case 2:
+                if( isGlob( parts[ 1 ] ) )
+                {
+                    listOf( globs, parts[ 0 ] ).add( new GlobOverride( parts[ 1 ], license ) );
+                }
+                else
+                {
+                    putIfAbsent( modules, parts[ 0 ] + ':' + parts[ 1 ], license );
+                }
+                break;
+            default:
+                if( isGlob( parts[ 1 ] ) )
+                {
+                    throw new IllegalArgumentException(
+                        "Module globs can't be combined with a version in license override: " + notation
+                    );
+                }
+                if( VersionRange.isRange( parts[ 2 ] ) )
+                {
+                    listOf( ranges, parts[ 0 ] + ':' + parts[ 1 ] ).add(
+                        new RangeOverride( VersionRange.parse( parts[ 2 ] ), license )
+                    );
+                }
+                else
+                {
+                    putIfAbsent( exact, notation.trim(), license );
+                }
+        }
+        putIfAbsent( declared, notation, license );
+    }
+
+    /**
+     * @return Declared overrides, in declaration order
+     */
+    public Map<String, String> getDeclared()
+    {
+        return Collections.unmodifiableMap( declared );
+    }
+
+    public boolean isEmpty()
+    {
+        return declared.isEmpty();
+    }
+
+    /**
+     * @return The overriden license of the given coordinates, {@literal null} if none
+     */
+    public String find( Gav gav )
+    {
+        if( declared.isEmpty() )
+        {
+            return null;
+        }
+        String module = gav.getGroupId() + ':' + gav.getArtifactId();
+        String license = exact.get( module + ':' + gav.getVersion() );
+        if( license != null )
+        {
+            return license;
+        }
+        List<RangeOverride> moduleRanges = ranges.get( module );
+        if( moduleRanges != null )
+        {
+            for( RangeOverride range : moduleRanges )
+            {
+                if( range.range.contains( gav.getVersion() ) )
+                {
+                    return range.license;
+                }
+            }
+        }
+        license = modules.get( module );
+        if( license != null )
+        {
+            return license;
+        }
+        List<GlobOverride> groupGlobs = globs.get( gav.getGroupId() );
+        if( groupGlobs != null )
+        {
+            for( GlobOverride glob : groupGlobs )
+            {
+                if( glob.pattern.matcher( gav.getArtifactId() ).matches() )
+                {
+                    return glob.license;
+                }
+            }
+        }
+        return groups.find( gav.getGroupId() );
+    }
+
+    private static boolean isGlob( String value )
+    {
+        return value.contains( "*" ) || value.contains( "?" );
+    }
+
+    private static <T> List<T> listOf( Map<String, List<T>> map, String key )
+    {
+        List<T> list = map.get( key );
+        if( list == null )
+        {
+            list = new ArrayList<>();
+            map.put( key, list );
+        }
+        return list;
+    }
+
+    private static void putIfAbsent( Map<String, String> map, String key, String license )
+    {
+        if( !map.containsKey( key ) )
+        {
+            map.put( key, license );
+        }
+    }
+
+    private static final class RangeOverride
+    {
+        private final VersionRange range;
+        private final String license;
+
+        private RangeOverride( VersionRange range, String license )
+        {
+            this.range = range;
+            this.license = license;
+        }
+    }
+
+    private static final class GlobOverride
+    {
+        private final Pattern pattern;
+        private final String license;
+
+        private GlobOverride( String glob, String license )
+        {
+            StringBuilder regex = new StringBuilder();
+            for( String literal : glob.split( "((?<=[*?])|(?=[*?]))" ) )
+            {
+                if( "*".equals( literal ) )
+                {
+                    regex.append( ".*" );
+                }
+                else if( "?".equals( literal ) )
+                {
+                    regex.append( '.' );
+                }
+                else if( !literal.isEmpty() )
+                {
+                    regex.append( Pattern.quote( literal ) );
+                }
+            }
+            this.pattern = Pattern.compile( regex.toString() );
+            this.license = license;
+        }
+    }
+
+    /**
+     * Trie of dot separated group segments.
+     */
+    private static final class GroupTrie
+    {
+        private final Map<String, GroupTrie> children = new HashMap<>();
+        private String license;
+
+        private void put( String group, String license )
+        {
+            GroupTrie node = this;
+            for( String segment : StringUtils.split( group, '.' ) )
+            {
+                GroupTrie child = node.children.get( segment );
+                if( child == null )
+                {
+                    child = new GroupTrie();
+                    node.children.put( segment, child );
+                }
+                node = child;
+            }
+            if( node.license == null )
+            {
+                node.license = license;
+            }
+        }
+
+        private String find( String group )
+        {
+            String found = license;
+            GroupTrie node = this;
+            int start = 0;
+            while( node != null && start <= group.length() )
+            {
+                int end = group.indexOf( '.', start );
+                if( end < 0 )
+                {
+                    end = group.length();
+                }
+                node = node.children.get( group.substring( start, end ) );
+                if( node != null && node.license != null )
+                {
+                    found = node.license;
+                }
+                start = end + 1;
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang.StringUtils;
+
+import org.nosphere.honker.License;
+
+/**
+ * Classify license files by well known phrases of their text.
+ * <p>
+ * Only the head of license and copying files is considered, notice files and full texts quoting other licenses
+ * are not classified.
+ */
+final class LicenseTextClassifier
+{
+    private static final int HEAD_LENGTH = 2048;
+
+    private static final List<String> CLASSIFIED_FILES = Arrays.asList( "license", "copying", "copying.lesser" );
+
+    // Ordered, more specific phrases first
+    private static final List<Phrases> PHRASES = Arrays.asList(
+        new Phrases( License.AGPL, "gnu affero general public license" ),
+        new Phrases( License.LGPL, "gnu lesser general public license" ),
+        new Phrases( License.LGPL, "gnu library general public license" ),
+        new Phrases( License.GPL, "gnu general public license" ),
+        new Phrases( License.APACHE_2, "apache license", "version 2.0" ),
+        new Phrases( License.EPL, "eclipse public license" ),
+        new Phrases( License.EDL, "eclipse distribution license" ),
+        new Phrases( License.CDDL, "common development and distribution license" ),
+        new Phrases( License.MOZILLA, "mozilla public license" ),
+        new Phrases( License.BSL, "boost software license" ),
+        new Phrases( License.MIT_X11, "permission is hereby granted, free of charge, to any person obtaining a copy" ),
+        new Phrases( License.BSD_3_CLAUSES, "redistribution and use in source and binary forms", "neither the name" ),
+        new Phrases( License.BSD_2_CLAUSES, "redistribution and use in source and binary forms" )
+    );
+
+    static License classify( DepTreeData.SomeFile licenseFile )
+    {
+        if( !CLASSIFIED_FILES.contains( licenseFile.getName() ) || StringUtils.isBlank( licenseFile.getContent() ) )
+        {
+            return null;
+        }
+        String text = licenseFile.getContent().replaceAll( "\\s+", " " ).toLowerCase( Locale.US );
+        String head = StringUtils.left( text.trim(), HEAD_LENGTH );
+        for( Phrases phrases : PHRASES )
+        {
+            if( phrases.matches( head ) )
+            {
+                return phrases.license;
+            }
+        }
+        return null;
+    }
+
+    private static final class Phrases
+    {
+        private final License license;
+        private final String[] phrases;
+
+        private Phrases( License license, String... phrases )
+        {
+            this.license = license;
+            this.phrases = phrases;
+        }
+
+        private boolean matches( String text )
+        {
+            for( String phrase : phrases )
+            {
+                if( !text.contains( phrase ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private LicenseTextClassifier()
+    {
+    }
+}
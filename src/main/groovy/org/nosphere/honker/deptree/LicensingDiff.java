@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.nosphere.honker.License;
+
+/**
+ * Licensing changes between a baseline and a current {@link LicensingSummary}.
+ * <p>
+ * Artifacts are added or removed by coordinates. License changes are reported for artifacts of the same module,
+ * extension and classifier, e.g. across a version upgrade. Conflicts and mentions in NOTICE or LICENSE are only
+ * reported when they are new to the current summary.
+ */
+public final class LicensingDiff
+{
+    private final SortedSet<String> added = new TreeSet<>();
+    private final SortedSet<String> removed = new TreeSet<>();
+    private final Map<String, String> changedFrom = new LinkedHashMap<>();
+    private final SortedSet<String> newConflicts = new TreeSet<>();
+    private final SortedSet<String> newNoticeMentions = new TreeSet<>();
+    private final SortedSet<String> newLicenseMentions = new TreeSet<>();
+
+    /**
+     * @param projectLicense License of the project, conflicts and mentions are not reported if {@literal null}
+     */
+    public static LicensingDiff between( LicensingSummary baseline, LicensingSummary current, License projectLicense )
+    {
+        LicensingDiff diff = new LicensingDiff();
+        if( baseline.getDigest().equals( current.getDigest() ) )
+        {
+            return diff;
+        }
+        Map<String, String> baselineByModule = new LinkedHashMap<>();
+        for( String coordinates : baseline.getEntries().keySet() )
+        {
+            if( current.get( coordinates ) == null )
+            {
+                diff.removed.add( coordinates );
+                baselineByModule.put( moduleOf( coordinates ), coordinates );
+            }
+        }
+        for( Map.Entry<String, LicensingSummary.Entry> entry : current.getEntries().entrySet() )
+        {
+            String coordinates = entry.getKey();
+            LicensingSummary.Entry baselineEntry = baseline.get( coordinates );
+            String previous = coordinates;
+            if( baselineEntry == null )
+            {
+                diff.added.add( coordinates );
+                previous = baselineByModule.get( moduleOf( coordinates ) );
+                baselineEntry = previous == null ? null : baseline.get( previous );
+            }
+            Set<License> licenses = entry.getValue().getLicenses();
+            Set<License> baselineLicenses = baselineEntry == null
+                                            ? Collections.<License>emptySet()
+                                            : baselineEntry.getLicenses();
+            if( baselineEntry != null && !licenses.equals( baselineLicenses ) )
+            {
+                diff.changedFrom.put( coordinates, previous );
+            }
+            if( projectLicense != null )
+            {
+                if( conflicts( licenses, projectLicense ) && !conflicts( baselineLicenses, projectLicense ) )
+                {
+                    diff.newConflicts.add( coordinates );
+                }
+                if( anyNoticeMention( licenses, projectLicense )
+                    && !anyNoticeMention( baselineLicenses, projectLicense ) )
+                {
+                    diff.newNoticeMentions.add( coordinates );
+                }
+                if( anyLicenseMention( licenses, projectLicense )
+                    && !anyLicenseMention( baselineLicenses, projectLicense ) )
+                {
+                    diff.newLicenseMentions.add( coordinates );
+                }
+            }
+        }
+        return diff;
+    }
+
+    public boolean isEmpty()
+    {
+        return added.isEmpty() && removed.isEmpty() && changedFrom.isEmpty();
+    }
+
+    public SortedSet<String> getAdded()
+    {
+        return Collections.unmodifiableSortedSet( added );
+    }
+
+    public SortedSet<String> getRemoved()
+    {
+        return Collections.unmodifiableSortedSet( removed );
+    }
+
+    /**
+     * @return Coordinates of the baseline artifacts whose licenses changed, keyed by current coordinates
+     */
+    public Map<String, String> getChangedLicenses()
+    {
+        return Collections.unmodifiableMap( changedFrom );
+    }
+
+    public SortedSet<String> getNewConflicts()
+    {
+        return Collections.unmodifiableSortedSet( newConflicts );
+    }
+
+    public SortedSet<String> getNewNoticeMentions()
+    {
+        return Collections.unmodifiableSortedSet( newNoticeMentions );
+    }
+
+    public SortedSet<String> getNewLicenseMentions()
+    {
+        return Collections.unmodifiableSortedSet( newLicenseMentions );
+    }
+
+    /**
+     * @return Artifact coordinates without their version
+     */
+    private static String moduleOf( String coordinates )
+    {
+        String[] parts = coordinates.split( ":" );
+        if( parts.length < 3 )
+        {
+            return coordinates;
+        }
+        StringBuilder module = new StringBuilder( parts[ 0 ] ).append( ':' ).append( parts[ 1 ] );
+        for( int idx = 3; idx < parts.length; idx++ )
+        {
+            module.append( ':' ).append( parts[ idx ] );
+        }
+        return module.toString();
+    }
+
+    /**
+     * Same as {@link org.nosphere.honker.visitors.LicenseConflictVisitor}, all licenses must conflict.
+     */
+    private static boolean conflicts( Set<License> licenses, License projectLicense )
+    {
+        if( licenses.isEmpty() )
+        {
+            return false;
+        }
+        for( License license : licenses )
+        {
+            if( !license.conflictWith( projectLicense ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean anyNoticeMention( Set<License> licenses, License projectLicense )
+    {
+        for( License license : licenses )
+        {
+            if( license.needMentionInNoticeFor( projectLicense ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean anyLicenseMention( Set<License> licenses, License projectLicense )
+    {
+        for( License license : licenses )
+        {
+            if( license.needMentionInLicenseFor( projectLicense ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.nosphere.honker.License;
+
+/**
+ * Detected licenses of the artifacts of a dependency graph, keyed by artifact coordinates along with the checksum
+ * of the artifact they were detected from.
+ * <p>
+ * Summaries are stored as text, one artifact per line sorted by coordinates:
+ * {@literal coordinates checksum LICENSE,LICENSE}, a {@literal -} standing for an unknown checksum or no license.
+ * Their digest, a SHA-1 of their entries, tells identical summaries apart without comparing entries.
+ */
+public final class LicensingSummary
+{
+    private static final String HEADER = "# honker licensing summary v1";
+    private static final String NONE = "-";
+
+    private final SortedMap<String, Entry> entries = new TreeMap<>();
+    private String digest;
+
+    public void put( String coordinates, String checksum, Set<License> licenses )
+    {
+        entries.put( coordinates, new Entry( checksum, licenses ) );
+        digest = null;
+    }
+
+    /**
+     * @return The entry of the given artifact coordinates, {@literal null} if none
+     */
+    public Entry get( String coordinates )
+    {
+        return entries.get( coordinates );
+    }
+
+    public SortedMap<String, Entry> getEntries()
+    {
+        return Collections.unmodifiableSortedMap( entries );
+    }
+
+    public void putAll( LicensingSummary other )
+    {
+        entries.putAll( other.entries );
+        digest = null;
+    }
+
+    public synchronized String getDigest()
+    {
+        if( digest == null )
+        {
+            Hasher hasher = Hashing.sha1().newHasher();
+            for( Map.Entry<String, Entry> entry : entries.entrySet() )
+            {
+                hasher.putString( line( entry.getKey(), entry.getValue() ), StandardCharsets.UTF_8 ).putChar( '\n' );
+            }
+            digest = hasher.hash().toString();
+        }
+        return digest;
+    }
+
+    public static LicensingSummary read( File file )
+        throws IOException
+    {
+        Reader reader = new InputStreamReader( new FileInputStream( file ), StandardCharsets.UTF_8 );
+        try
+        {
+            return read( reader );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( reader );
+        }
+    }
+
+    public static LicensingSummary read( Reader reader )
+        throws IOException
+    {
+        LicensingSummary summary = new LicensingSummary();
+        BufferedReader lines = new BufferedReader( reader );
+        int lineNumber = 0;
+        for( String line = lines.readLine(); line != null; line = lines.readLine() )
+        {
+            lineNumber++;
+            line = line.trim();
+            if( line.isEmpty() || line.startsWith( "#" ) )
+            {
+                continue;
+            }
+            String[] fields = StringUtils.split( line, ' ' );
+            if( fields.length != 3 )
+            {
+                throw new IOException( "Invalid licensing summary entry at line " + lineNumber + ": " + line );
+            }
+            Set<License> licenses = new LinkedHashSet<>();
+            if( !NONE.equals( fields[ 2 ] ) )
+            {
+                for( String license : StringUtils.split( fields[ 2 ], ',' ) )
+                {
+                    try
+                    {
+                        licenses.add( License.valueOf( license ) );
+                    }
+                    catch( IllegalArgumentException ex )
+                    {
+                        throw new IOException(
+                            "Unknown license " + license + " in licensing summary entry at line " + lineNumber + ": "
+                            + line, ex
+                        );
+                    }
+                }
+            }
+            summary.put( fields[ 0 ], NONE.equals( fields[ 1 ] ) ? null : fields[ 1 ], licenses );
+        }
+        return summary;
+    }
+
+    public void write( File file )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter( new FileOutputStream( file ), StandardCharsets.UTF_8 );
+        try
+        {
+            writer.write( HEADER );
+            writer.write( '\n' );
+            for( Map.Entry<String, Entry> entry : entries.entrySet() )
+            {
+                writer.write( line( entry.getKey(), entry.getValue() ) );
+                writer.write( '\n' );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    private static String line( String coordinates, Entry entry )
+    {
+        StringBuilder line = new StringBuilder( coordinates ).append( ' ' );
+        line.append( entry.checksum == null ? NONE : entry.checksum ).append( ' ' );
+        if( entry.licenses.isEmpty() )
+        {
+            return line.append( NONE ).toString();
+        }
+        for( License license : entry.licenses )
+        {
+            line.append( license.name() ).append( ',' );
+        }
+        return line.substring( 0, line.length() - 1 );
+    }
+
+    public static final class Entry
+    {
+        private final String checksum;
+        private final Set<License> licenses;
+
+        private Entry( String checksum, Set<License> licenses )
+        {
+            this.checksum = checksum;
+            Set<License> sorted = EnumSet.noneOf( License.class );
+            sorted.addAll( licenses );
+            this.licenses = Collections.unmodifiableSet( sorted );
+        }
+
+        /**
+         * @return Checksum of the artifact the licenses were detected from, {@literal null} if unknown
+         */
+        public String getChecksum()
+        {
+            return checksum;
+        }
+
+        public Set<License> getLicenses()
+        {
+            return licenses;
+        }
+    }
+}
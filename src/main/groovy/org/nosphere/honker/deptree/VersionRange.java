@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.deptree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Maven style version range.
+ * <p>
+ * Supports {@literal [1.0,2.0)}, {@literal [1.0,)}, {@literal (,1.0]} and {@literal [1.0]} notations.
+ */
+public final class VersionRange
+{
+    public static boolean isRange( String notation )
+    {
+        return notation != null
+               && ( notation.startsWith( "[" ) || notation.startsWith( "(" ) )
+               && ( notation.endsWith( "]" ) || notation.endsWith( ")" ) );
+    }
+
+    public static VersionRange parse( String notation )
+    {
+        if( !isRange( notation ) )
+        {
+            throw new IllegalArgumentException( "Invalid version range: " + notation );
+        }
+        boolean lowerInclusive = notation.startsWith( "[" );
+        boolean upperInclusive = notation.endsWith( "]" );
+        String content = notation.substring( 1, notation.length() - 1 );
+        if( !content.contains( "," ) )
+        {
+            if( !lowerInclusive || !upperInclusive || content.trim().isEmpty() )
+            {
+                throw new IllegalArgumentException( "Invalid version range: " + notation );
+            }
+            return new VersionRange( notation, content.trim(), true, content.trim(), true );
+        }
+        String lower = StringUtils.trimToNull( StringUtils.substringBefore( content, "," ) );
+        String upper = StringUtils.trimToNull( StringUtils.substringAfter( content, "," ) );
+        return new VersionRange( notation, lower, lowerInclusive, upper, upperInclusive );
+    }
+
+    /**
+     * Compare versions segment by segment, numerically when possible.
+     * Qualified versions are lower than their release, e.g. {@literal 1.0-beta < 1.0}.
+     */
+    public static int compareVersions( String left, String right )
+    {
+        List<String> leftTokens = tokenize( left );
+        List<String> rightTokens = tokenize( right );
+        int count = Math.max( leftTokens.size(), rightTokens.size() );
+        for( int idx = 0; idx < count; idx++ )
+        {
+            String leftToken = idx < leftTokens.size() ? leftTokens.get( idx ) : null;
+            String rightToken = idx < rightTokens.size() ? rightTokens.get( idx ) : null;
+            int comparison = compareTokens( leftToken, rightToken );
+            if( comparison != 0 )
+            {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private static int compareTokens( String left, String right )
+    {
+        boolean leftNumeric = left != null && StringUtils.isNumeric( left );
+        boolean rightNumeric = right != null && StringUtils.isNumeric( right );
+        if( left == null )
+        {
+            return rightNumeric ? compareNumbers( "0", right ) : 1;
+        }
+        if( right == null )
+        {
+            return leftNumeric ? compareNumbers( left, "0" ) : -1;
+        }
+        if( leftNumeric && rightNumeric )
+        {
+            return compareNumbers( left, right );
+        }
+        if( leftNumeric )
+        {
+            return 1;
+        }
+        if( rightNumeric )
+        {
+            return -1;
+        }
+        return left.compareTo( right );
+    }
+
+    private static int compareNumbers( String left, String right )
+    {
+        String leftDigits = StringUtils.stripStart( left, "0" );
+        String rightDigits = StringUtils.stripStart( right, "0" );
+        if( leftDigits.length() != rightDigits.length() )
+        {
+            return leftDigits.length() < rightDigits.length() ? -1 : 1;
+        }
+        return leftDigits.compareTo( rightDigits );
+    }
+
+    private static List<String> tokenize( String version )
+    {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        Boolean currentNumeric = null;
+        for( char chr : version.toLowerCase( Locale.US ).toCharArray() )
+        {
+            if( chr == '.' || chr == '-' || chr == '_' || chr == '+' )
+            {
+                if( current.length() > 0 )
+                {
+                    tokens.add( current.toString() );
+                    current.setLength( 0 );
+                }
+                currentNumeric = null;
+                continue;
+            }
+            boolean numeric = Character.isDigit( chr );
+            if( currentNumeric != null && currentNumeric != numeric && current.length() > 0 )
+            {
+                tokens.add( current.toString() );
+                current.setLength( 0 );
+            }
+            currentNumeric = numeric;
+            current.append( chr );
+        }
+        if( current.length() > 0 )
+        {
+            tokens.add( current.toString() );
+        }
+        return tokens;
+    }
+
+    private final String notation;
+    private final String lower;
+    private final boolean lowerInclusive;
+    private final String upper;
+    private final boolean upperInclusive;
+
+    private VersionRange( String notation, String lower, boolean lowerInclusive, String upper, boolean upperInclusive )
+    {
+        this.notation = notation;
+        this.lower = lower;
+        this.lowerInclusive = lowerInclusive;
+        this.upper = upper;
+        this.upperInclusive = upperInclusive;
+    }
+
+    public boolean contains( String version )
+    {
+        if( version == null )
+        {
+            return false;
+        }
+        if( lower != null )
+        {
+            int comparison = compareVersions( version, lower );
+            if( comparison < 0 || ( comparison == 0 && !lowerInclusive ) )
+            {
+                return false;
+            }
+        }
+        if( upper != null )
+        {
+            int comparison = compareVersions( version, upper );
+            if( comparison > 0 || ( comparison == 0 && !upperInclusive ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return notation;
+    }
+}
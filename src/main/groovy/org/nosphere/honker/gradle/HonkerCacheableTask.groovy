@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.Task
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.result.DependencyResult
+import org.gradle.api.artifacts.result.ResolvedDependencyResult
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFile
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.gradle.deptree.GradleArtifactLoader
+
+/**
+ * Base of the cacheable tasks whose outputs are made of the licensing data of the artifacts of a configuration.
+ * <p>
+ * Licensing data of artifacts come from their content, resolved coordinates, lock file and honker settings, all
+ * declared as inputs here. Declarative license overrides are tracked but license override closures can't be, outputs
+ * are hence not cached when any is registered.
+ * <p>
+ * Licensing data of artifacts also come from their POMs, outputs aren't cached when any POM chain can't be resolved
+ * so that a transient resolution failure doesn't outlive the build. POMs are resolved ahead for that, through the
+ * artifact loader later used by the task action.
+ */
+@CompileStatic
+abstract class HonkerCacheableTask extends DefaultTask
+{
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+
+  private final Set<Facet> facets
+  private GradleArtifactLoader artifactLoader
+
+  /**
+   * @param facets Facets of the artifacts the task outputs are made of
+   */
+  protected HonkerCacheableTask( Set<Facet> facets )
+  {
+    this.facets = facets
+    outputs.cacheIf( 'no license override closure is registered' ) { Task task ->
+      task.project.extensions.getByType( HonkerExtension ).licenseOverrides.isEmpty()
+    }
+    outputs.cacheIf( 'the POMs of all dependencies could be resolved' ) { Task task ->
+      def cacheableTask = task as HonkerCacheableTask
+      cacheableTask.artifactLoader.resolvePoms( cacheableTask.configuration ).isEmpty()
+    }
+  }
+
+  @Internal
+  GradleArtifactLoader getArtifactLoader()
+  {
+    if( artifactLoader == null )
+    {
+      artifactLoader = new GradleArtifactLoader( project, facets )
+    }
+    return artifactLoader
+  }
+
+  @Optional
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  File getLockFile()
+  {
+    def lockFile = project.extensions.getByType( HonkerExtension ).lockFile
+    return lockFile?.isFile() ? lockFile : null
+  }
+
+  @Input
+  List<String> getResolvedDependencies()
+  {
+    return configuration.incoming.resolutionResult.allDependencies.collect { DependencyResult dep ->
+      dep instanceof ResolvedDependencyResult
+        ? "${ dep.from.id } -> ${ ( dep as ResolvedDependencyResult ).selected.id }".toString()
+        : "${ dep.from.id } -> ${ dep.requested }".toString()
+    }.sort()
+  }
+
+  @Input
+  Map<String, String> getLicenseOverrides()
+  {
+    return project.extensions.getByType( HonkerExtension ).licenseOverrideIndex.declared
+  }
+
+  @Input
+  List<String> getLicenseDetection()
+  {
+    def licenseDetection = project.extensions.getByType( HonkerExtension ).licenseDetection
+    def inputs = licenseDetection.tiers*.name()
+    if( licenseDetection.database != null )
+    {
+      inputs << "database:${ licenseDetection.database.digest }".toString()
+    }
+    if( licenseDetection.nameMatcher != null )
+    {
+      inputs << "fuzzy:${ licenseDetection.nameMatcher.threshold }".toString()
+    }
+    return inputs
+  }
+}
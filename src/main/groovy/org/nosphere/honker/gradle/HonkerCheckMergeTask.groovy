@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.FileCollection
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.util.PatternFilterable
+import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTree
+import org.nosphere.honker.deptree.DepTreeShards
+import org.nosphere.honker.visitors.DependenciesByOrganizationsVisitor
+import org.nosphere.honker.visitors.LicenseConflictVisitor
+import org.nosphere.honker.visitors.LicensePresenceVisitor
+
+/**
+ * Sharded License Check Merge Task.
+ * <p>
+ * Merges the partial results written by all the shards of {@literal honkerCheck}, without loading any artifact,
+ * into the same verdict and DEPENDENCIES file as an unsharded run.
+ */
+@DisableCachingByDefault(because = "only merges partial results and fails on license check failures")
+@CompileStatic
+class HonkerCheckMergeTask extends DefaultTask
+{
+  @Internal
+  File shardsDir = project.file "$project.buildDir/honker/check-shards"
+
+  /**
+   * Number of shards to merge, only needed when {@link #shardsDir} holds shards of several counts.
+   */
+  @Optional
+  @Input
+  Integer shardCount
+
+  @Optional
+  @Input
+  String header
+
+  @Optional
+  @Input
+  String footer
+
+  @OutputDirectory
+  File outputDir = project.file "$project.buildDir/honker/check-merge"
+
+  @Input
+  String resourcePath = 'META-INF/DEPENDENCIES.txt'
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  FileCollection getShardFiles()
+  {
+    return project.fileTree( shardsDir ).matching { PatternFilterable pattern ->
+      pattern.include shardCount ? "shard-*-of-${ shardCount }.bin".toString() : 'shard-*-of-*.bin'
+    }
+  }
+
+  @TaskAction
+  void merge()
+  {
+    def honker = project.extensions.getByType HonkerExtension
+    def lic = honker.license ? License.valueOfLicenseName( honker.license ) : null
+
+    def shards = [ ] as List<DepTreeShards.Shard>
+    shardFiles.files.each { File shardFile ->
+      shardFile.withInputStream { InputStream input -> shards << DepTreeShards.read( input, honker.licenseDetection ) }
+    }
+    shards.sort { DepTreeShards.Shard shard -> shard.index }
+    if( shards.isEmpty() )
+    {
+      throw new GradleException( "No honkerCheck shard found in $shardsDir, run honkerCheck --shard=<index>/<count> first" )
+    }
+    def counts = shards.collect { DepTreeShards.Shard shard -> shard.count }.unique()
+    if( counts.size() > 1 )
+    {
+      throw new GradleException(
+        "Found honkerCheck shards of several counts in $shardsDir: $counts, set honkerCheckMerge.shardCount"
+      )
+    }
+    def count = counts.first()
+    def missing = ( 0..<count ).findAll { int index ->
+      !shards.any { DepTreeShards.Shard shard -> shard.index == index }
+    }
+    if( missing || shards.size() != count )
+    {
+      throw new GradleException( "Expected the $count shards of honkerCheck in $shardsDir, missing: $missing" )
+    }
+
+    def partials = [ : ] as Map<List<String>, List<DepTree>>
+    shards.each { DepTreeShards.Shard shard ->
+      if( shard.trees.keySet() != shards.first().trees.keySet() )
+      {
+        throw new GradleException( "honkerCheck shards $shard.index and ${ shards.first().index } were written for different configurations" )
+      }
+      shard.trees.each { List<String> configurationNames, DepTree partial ->
+        def first = shards.first().trees[ configurationNames ]
+        if( partial.roots != first.roots || partial.edges != first.edges )
+        {
+          throw new GradleException( "honkerCheck shards $shard.index and ${ shards.first().index } were written for different dependency graphs of ${ configurationNames.join( ', ' ) }" )
+        }
+        if( !partials.containsKey( configurationNames ) )
+        {
+          partials[ configurationNames ] = [ ] as List<DepTree>
+        }
+        partials[ configurationNames ] << partial
+      }
+    }
+    def depTrees = [ : ] as Map<List<String>, DepTree>
+    partials.each { List<String> configurationNames, List<DepTree> trees ->
+      depTrees[ configurationNames ] = DepTreeShards.merge( trees )
+    }
+
+    def dependencies = DepTree.collect( depTrees.values(), DependenciesByOrganizationsVisitor.collector() )
+    File target = new File( outputDir, resourcePath )
+    target.parentFile.mkdirs()
+    target.text = HonkerGenDependenciesTask.dependenciesText(
+      honker.projectName ?: project.name, dependencies, header, footer
+    )
+    logger.lifecycle "Merged $count honkerCheck shards, DEPENDENCIES file written to $target.absolutePath"
+
+    def presenceVisitors = [ : ] as Map<List<String>, LicensePresenceVisitor>
+    def conflictVisitors = [ : ] as Map<List<String>, LicenseConflictVisitor>
+    depTrees.each { List<String> configurationNames, DepTree depTree ->
+      depTree.accept HonkerCheckTask.checkVisitor( configurationNames, lic, presenceVisitors, conflictVisitors )
+    }
+    HonkerCheckTask.reportFailures logger, lic, depTrees, presenceVisitors, conflictVisitors
+  }
+}
@@ -19,13 +19,27 @@ import groovy.transform.CompileStatic;
 import org.gradle.api.DefaultTask
 import org.gradle.api.GradleException
 import org.gradle.api.artifacts.Configuration
+import org.gradle.api.logging.Logger
+import org.gradle.api.specs.Spec
+import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputFile
 import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.options.Option
 import org.gradle.work.DisableCachingByDefault
 import org.nosphere.honker.License
-import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+import org.nosphere.honker.deptree.DepGraphIndex
+import org.nosphere.honker.deptree.DepTree
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.deptree.DepTreeShards
+import org.nosphere.honker.deptree.DepTreeVisitor
+import org.nosphere.honker.gradle.deptree.GradleDepTreesLoader
+import org.nosphere.honker.visitors.CompositeVisitor
+import org.nosphere.honker.visitors.FailFastLicenseVisitor
 import org.nosphere.honker.visitors.LicenseConflictVisitor
 import org.nosphere.honker.visitors.LicensePresenceVisitor
 
@@ -33,52 +47,305 @@ import org.nosphere.honker.visitors.LicensePresenceVisitor
 @CompileStatic
 class HonkerCheckTask extends DefaultTask
 {
+  private static final int MAX_EXPLAINED_PATHS = 5
+
   @InputFiles
   @PathSensitive(PathSensitivity.RELATIVE)
-  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+  List<Configuration> configurations = [ project.configurations.getByName( 'runtimeClasspath' ) ]
+
+  private boolean defaultConfigurations = true
+
+  /**
+   * Stop at the first failure, evaluating artifacts by order of cheapest evidence, instead of reporting all failures.
+   */
+  @Internal
+  @Option(option = 'fail-fast', description = 'Stop at the first license check failure.')
+  boolean failFast = false
+
+  /**
+   * Index of the shard of dependencies to check, from 0 to {@link #shardCount} excluded.
+   */
+  @Input
+  int shardIndex = 0
+
+  /**
+   * Number of shards the dependencies are partitioned into, e.g. to check them on several CI workers.
+   * Each shard writes its partial result to {@link #shardsDir}, see {@link HonkerCheckMergeTask}.
+   */
+  @Input
+  int shardCount = 1
+
+  @Internal
+  File shardsDir = project.file "$project.buildDir/honker/check-shards"
+
+  @Option(option = 'shard', description = 'Check only one shard of the dependencies, e.g. 0/4 for the first of four shards.')
+  void setShard( String shard )
+  {
+    def parts = shard.tokenize( '/' )
+    if( parts.size() != 2 || !parts[ 0 ].isInteger() || !parts[ 1 ].isInteger() )
+    {
+      throw new GradleException( "Invalid honkerCheck shard '$shard', expected <index>/<count>, e.g. 0/4" )
+    }
+    shardIndex = parts[ 0 ].toInteger()
+    shardCount = parts[ 1 ].toInteger()
+  }
+
+  /**
+   * @return The partial result file of the shard, see {@link #shardIndex} and {@link #shardCount},
+   *         {@literal null} when not sharded
+   */
+  @Optional
+  @OutputFile
+  File getShardFile()
+  {
+    return shardCount > 1 ? new File( shardsDir, "shard-$shardIndex-of-${ shardCount }.bin" ) : null
+  }
+
+  HonkerCheckTask()
+  {
+    // The verdict depends on the licensing metadata of the artifacts, not declared as inputs
+    outputs.upToDateWhen { false }
+  }
+
+  @Internal
+  Configuration getConfiguration()
+  {
+    return configurations.first()
+  }
+
+  void setConfiguration( Configuration configuration )
+  {
+    setConfigurations( [ configuration ] )
+  }
+
+  void setConfigurations( List<Configuration> configurations )
+  {
+    this.configurations = configurations
+    defaultConfigurations = false
+  }
+
+  /**
+   * Replace the default {@literal runtimeClasspath} configuration on first use, add to the given ones afterwards.
+   */
+  void configurations( Configuration... configurations )
+  {
+    if( defaultConfigurations )
+    {
+      setConfigurations( [ ] )
+    }
+    this.configurations.addAll configurations
+  }
 
   @TaskAction
   void check()
   {
     def honker = project.extensions.getByType HonkerExtension
-    def depTree = new GradleDepTreeLoader( project, configuration ).load()
+    def lic = honker.license ? License.valueOfLicenseName( honker.license ) : null
+    if( failFast && shardCount > 1 )
+    {
+      throw new GradleException( 'honkerCheck --fail-fast cannot be combined with --shard' )
+    }
+    if( failFast )
+    {
+      checkFailFast lic
+      return
+    }
+    if( shardCount > 1 )
+    {
+      checkShard lic
+      return
+    }
 
-    def errors = [ ] as List<String>
+    // Only the compact results of the visitors are kept while the dependency trees are streamed
+    def presenceVisitors = [ : ] as Map<List<String>, LicensePresenceVisitor>
+    def conflictVisitors = [ : ] as Map<List<String>, LicenseConflictVisitor>
+    def loader = new GradleDepTreesLoader( project, configurations, EnumSet.of( Facet.LICENSES ) )
+    def depTrees = loader.stream { List<String> configurationNames ->
+      checkVisitor configurationNames, lic, presenceVisitors, conflictVisitors
+    }
+    reportFailures logger, lic, depTrees, presenceVisitors, conflictVisitors
+  }
 
-    // Ensure no artifact without license
+  /**
+   * @return Visitor checking a dependency tree, its visitors are registered by configuration names
+   */
+  static DepTreeVisitor checkVisitor( List<String> configurationNames, License lic,
+                                      Map<List<String>, LicensePresenceVisitor> presenceVisitors,
+                                      Map<List<String>, LicenseConflictVisitor> conflictVisitors )
+  {
     def presenceVisitor = new LicensePresenceVisitor()
-    depTree.accept presenceVisitor
-    def noLic = presenceVisitor.artifactsWithoutLicense()
-    if( !noLic.isEmpty() )
+    presenceVisitors[ configurationNames ] = presenceVisitor
+    if( !lic )
     {
-      errors.addAll noLic.collect {
-        "  $it.coordinates no licensing data could be found".toString()
-      }
+      return presenceVisitor
     }
+    def conflictVisitor = new LicenseConflictVisitor( lic )
+    conflictVisitors[ configurationNames ] = conflictVisitor
+    return new CompositeVisitor( presenceVisitor, conflictVisitor )
+  }
 
-    if( honker.license )
-    {
-      def lic = License.valueOfLicenseName honker.license
+  /**
+   * Fail with the artifacts without license or in conflict found by the visitors, and their dependency paths.
+   *
+   * @param depTrees Dependency trees or graphs, keyed by configuration names
+   */
+  static void reportFailures( Logger logger, License lic, Map<List<String>, DepTree> depTrees,
+                              Map<List<String>, LicensePresenceVisitor> presenceVisitors,
+                              Map<List<String>, LicenseConflictVisitor> conflictVisitors )
+  {
+    // Error messages, with the names of the configurations they were found in
+    def errors = [ : ] as Map<String, List<String>>
+    // Paths from first level dependencies to the offending dependencies
+    def explanations = [ : ] as Map<String, String>
+    depTrees.keySet().each { List<String> configurationNames ->
+
+      def treeErrors = [ ] as List<String>
+      def offending = [ ] as List<String>
+
+      // Ensure no artifact without license
+      def noLic = presenceVisitors[ configurationNames ].artifactsWithoutLicense()
+      if( !noLic.isEmpty() )
+      {
+        offending.addAll noLic*.coordinates
+        treeErrors.addAll noLic.collect {
+          "  $it.coordinates no licensing data could be found".toString()
+        }
+      }
+
+      if( lic )
+      {
+        // Ensure no artifact with licensing conflict
+        def conflicts = conflictVisitors[ configurationNames ].conflicts()
+        if( !conflicts.isEmpty() )
+        {
+          offending.addAll conflicts*.coordinates
+          treeErrors.addAll conflicts.collect {
+            "  $it.coordinates ${ it.detectedLicenses.collect { it.preferedName }.join( ' / ' ) } conflicts with $lic.preferedName".toString()
+          }
+        }
+      }
 
-      // Ensure no artifact with licensing conflict
-      def conflictVisitor = new LicenseConflictVisitor( lic )
-      depTree.accept conflictVisitor
-      def conflicts = conflictVisitor.conflicts()
-      if( !conflicts.isEmpty() )
+      if( !offending.isEmpty() )
       {
-        errors.addAll conflicts.collect {
-          "  $it.coordinates ${ it.detectedLicenses.collect { it.preferedName }.join( ' / ' ) } conflicts with $lic.preferedName".toString()
+        def index = new DepGraphIndex( depTrees[ configurationNames ] )
+        offending.each { String artifactCoordinates ->
+          def coordinates = artifactCoordinates.tokenize( ':' ).take( 3 ).join( ':' )
+          if( !explanations.containsKey( coordinates ) )
+          {
+            explanations[ coordinates ] = HonkerUtils.describePaths(
+              coordinates, index.pathsTo( coordinates, MAX_EXPLAINED_PATHS ), MAX_EXPLAINED_PATHS
+            )
+          }
         }
       }
+
+      if( depTrees.size() > 1 )
+      {
+        logger.lifecycle "${ configurationNames.join( ', ' ) }: ${ treeErrors.size() } license check failure(s)"
+      }
+      treeErrors.each { String error ->
+        if( !errors.containsKey( error ) )
+        {
+          errors[ error ] = [ ] as List<String>
+        }
+        errors[ error ].addAll configurationNames
+      }
     }
 
     if( errors )
     {
-      if( errors.size() == 1 )
+      def messages = errors.collect { String error, List<String> configurationNames ->
+        depTrees.size() > 1 ? "$error (${ configurationNames.join( ', ' ) })".toString() : error
+      }
+      def explanation = explanations ? '\nDependency paths:\n  ' + explanations.values().join( '\n  ' ) : ''
+      if( messages.size() == 1 )
+      {
+        throw new GradleException( messages[ 0 ] + explanation )
+      }
+      throw new GradleException(
+        "License check failures: ${ messages.size() }\n" + messages.join( '\n' ) + explanation
+      )
+    }
+  }
+
+  /**
+   * Artifacts are not scanned when loaded, licenses are detected by the visitor, without resolving POMs first.
+   * Both the streaming of the dependency trees and the detection stop at the first failure.
+   */
+  private void checkFailFast( License lic )
+  {
+    def visitor = new FailFastLicenseVisitor( lic )
+    def loader = new GradleDepTreesLoader( project, configurations, EnumSet.noneOf( Facet ) )
+    def depTrees = loader.stream { List<String> configurationNames -> visitor as DepTreeVisitor }
+    if( visitor.violation == null )
+    {
+      logger.info "Honker fail-fast check: ${ visitor.deferredCount } artifact(s) need POM resolution"
+    }
+    def violation = visitor.violation ?: visitor.checkDeferred()
+    if( violation == null )
+    {
+      return
+    }
+    def error = violation.detectedLicenses.isEmpty()
+      ? "  $violation.coordinates no licensing data could be found"
+      : "  $violation.coordinates ${ violation.detectedLicenses.collect { it.preferedName }.join( ' / ' ) } conflicts with $lic.preferedName"
+    def coordinates = violation.coordinates.tokenize( ':' ).take( 3 ).join( ':' )
+    def explanation = ''
+    for( DepTree depTree : depTrees.values() )
+    {
+      def index = new DepGraphIndex( depTree )
+      if( !index.find( coordinates ).isEmpty() )
+      {
+        def paths = index.pathsTo( coordinates, MAX_EXPLAINED_PATHS )
+        explanation = '\nDependency paths:\n  ' + HonkerUtils.describePaths( coordinates, paths, MAX_EXPLAINED_PATHS )
+        break
+      }
+    }
+    throw new GradleException( "License check stopped at the first failure:\n$error$explanation" )
+  }
+
+  /**
+   * Only the dependencies of the shard are loaded, the artifact files of the other ones are not even fetched.
+   * They are checked and written to the shard file along with the complete dependency graphs.
+   */
+  private void checkShard( License lic )
+  {
+    if( shardIndex < 0 || shardIndex >= shardCount )
+    {
+      throw new GradleException( "Invalid honkerCheck shard $shardIndex/$shardCount" )
+    }
+    def facets = EnumSet.of( Facet.LICENSES, Facet.ATTRIBUTION )
+    def loader = new GradleDepTreesLoader( project, configurations, facets )
+    def depTrees = loader.loadPartial( { String coordinates ->
+      DepTreeShards.shardOf( coordinates, shardCount ) == shardIndex
+    } as Spec<String> )
+    deleteStaleShardFiles()
+    shardFile.withOutputStream { OutputStream output ->
+      DepTreeShards.write( new DepTreeShards.Shard( shardIndex, shardCount, depTrees ), output, facets )
+    }
+    def dependenciesCount = depTrees.values().inject( 0 ) { int count, DepTree depTree -> count + depTree.nodes.size() }
+    logger.lifecycle "Checking shard $shardIndex/$shardCount, $dependenciesCount dependencies, " +
+                     "partial result written to $shardFile.absolutePath"
+
+    def presenceVisitors = [ : ] as Map<List<String>, LicensePresenceVisitor>
+    def conflictVisitors = [ : ] as Map<List<String>, LicenseConflictVisitor>
+    depTrees.each { List<String> configurationNames, DepTree depTree ->
+      depTree.accept checkVisitor( configurationNames, lic, presenceVisitors, conflictVisitors )
+    }
+    reportFailures logger, lic, depTrees, presenceVisitors, conflictVisitors
+  }
+
+  /**
+   * Delete the shard files written by earlier runs with another shard count, so that they are not merged.
+   */
+  private void deleteStaleShardFiles()
+  {
+    shardsDir.mkdirs()
+    shardsDir.listFiles().each { File file ->
+      if( file.name ==~ /shard-\d+-of-\d+\.bin/ && !file.name.endsWith( "-of-${ shardCount }.bin" ) )
       {
-        throw new GradleException( errors[ 0 ] )
+        file.delete()
       }
-      throw new GradleException( "License check failures: ${ errors.size() }\n" + errors.join( '\n' ) )
     }
   }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.options.Option
+import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.deptree.LicensingDiff
+import org.nosphere.honker.deptree.LicensingSummary
+import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+import org.nosphere.honker.visitors.LicensingSummaryVisitor
+
+/**
+ * Licensing Diff Task.
+ * <p>
+ * Prints the licensing changes of the dependencies compared to a baseline: a licensing summary file written with
+ * {@literal --write-baseline}, or another configuration given with {@literal --baseline-configuration}.
+ * Only artifacts that are new or changed compared to the baseline are scanned, a baseline configuration only scans
+ * the artifacts that the current configuration doesn't share with it.
+ */
+@DisableCachingByDefault(because = "only prints to the console")
+@CompileStatic
+class HonkerDiffTask extends DefaultTask
+{
+  @Internal
+  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+
+  @Internal
+  File baselineFile = project.file 'honker-baseline.txt'
+
+  @Internal
+  @Option(option = 'baseline-configuration', description = 'Compare with another configuration instead of the baseline file.')
+  String baselineConfiguration
+
+  @Internal
+  @Option(option = 'write-baseline', description = 'Write the baseline file from the current dependencies.')
+  boolean writeBaseline
+
+  @TaskAction
+  void diff()
+  {
+    def honker = project.extensions.getByType HonkerExtension
+    def lic = honker.license ? License.valueOfLicenseName( honker.license ) : null
+
+    LicensingSummary baseline = null
+    LicensingSummaryVisitor current
+    String baselineName = baselineFile.name
+    if( baselineConfiguration )
+    {
+      // The current configuration is scanned first so that the baseline one only scans the artifacts it lacks
+      baselineName = baselineConfiguration
+      current = summarize( configuration, null )
+      def baselineSummary = summarize( project.configurations.getByName( baselineConfiguration ), current.summary )
+      baseline = baselineSummary.summary
+      logger.info "Honker diff: scanned ${ baselineSummary.scanned } of ${ baseline.entries.size() } baseline artifact(s)"
+    }
+    else if( baselineFile.isFile() )
+    {
+      baseline = LicensingSummary.read( baselineFile )
+      current = summarize( configuration, baseline )
+    }
+    else if( !writeBaseline )
+    {
+      throw new GradleException( "No licensing baseline $baselineFile, run honkerDiff --write-baseline to write it" )
+    }
+    else
+    {
+      current = summarize( configuration, null )
+    }
+    logger.info "Honker diff: scanned ${ current.scanned } of ${ current.summary.entries.size() } artifact(s)"
+    if( writeBaseline )
+    {
+      current.summary.write baselineFile
+      logger.lifecycle "Wrote licensing baseline $baselineFile.absolutePath"
+      return
+    }
+    logger.lifecycle describe( baselineName, LicensingDiff.between( baseline, current.summary, lic ), current.summary, lic )
+  }
+
+  private LicensingSummaryVisitor summarize( Configuration configuration, LicensingSummary baseline )
+  {
+    def visitor = new LicensingSummaryVisitor( baseline )
+    new GradleDepTreeLoader( project, configuration, EnumSet.noneOf( Facet ) ).stream visitor
+    return visitor
+  }
+
+  private static String describe( String baselineName, LicensingDiff diff, LicensingSummary current, License lic )
+  {
+    if( diff.isEmpty() )
+    {
+      return "Licensing diff against $baselineName: no changes".toString()
+    }
+    def description = new StringBuilder( "Licensing diff against $baselineName: " )
+    description.append( "${ diff.added.size() } added, ${ diff.removed.size() } removed, " )
+    description.append( "${ diff.changedLicenses.size() } license change(s), ${ diff.newConflicts.size() } new conflict(s)" )
+    diff.added.each { String coordinates ->
+      description.append( "\n  + $coordinates ${ licensesOf( current, coordinates ) }" )
+    }
+    diff.removed.each { String coordinates ->
+      description.append( "\n  - $coordinates" )
+    }
+    diff.changedLicenses.each { String coordinates, String previous ->
+      description.append( "\n  ~ $coordinates ${ licensesOf( current, coordinates ) }, was $previous" )
+    }
+    appendSection( description, "New conflicts with ${ lic?.preferedName }", diff.newConflicts )
+    appendSection( description, 'New mentions needed in NOTICE', diff.newNoticeMentions )
+    appendSection( description, 'New mentions needed in LICENSE', diff.newLicenseMentions )
+    return description.toString()
+  }
+
+  private static String licensesOf( LicensingSummary summary, String coordinates )
+  {
+    def licenses = summary.get( coordinates ).licenses
+    return licenses ? licenses*.preferedName.join( ' / ' ) : 'no licensing data'
+  }
+
+  private static void appendSection( StringBuilder description, String title, Set<String> coordinates )
+  {
+    if( coordinates )
+    {
+      description.append( "\n$title:" )
+      coordinates.each { String coordinate -> description.append( "\n  $coordinate" ) }
+    }
+  }
+}
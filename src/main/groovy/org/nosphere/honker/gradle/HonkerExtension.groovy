@@ -16,8 +16,14 @@
 package org.nosphere.honker.gradle
 
 import groovy.transform.CompileStatic
+import java.time.Duration
 import org.gradle.api.Action
+import org.gradle.api.GradleException
 import org.gradle.api.Project
+import org.nosphere.honker.deptree.LicenseDatabase
+import org.nosphere.honker.deptree.LicenseDetection
+import org.nosphere.honker.deptree.LicenseNameMatcher
+import org.nosphere.honker.deptree.LicenseOverrideIndex
 
 @CompileStatic
 class HonkerExtension
@@ -28,6 +34,15 @@ class HonkerExtension
   String projectTimespan
   String projectOrganization
   List<Action<HonkerLicenseOverrideCandidate>> licenseOverrides = [ ]
+  File lockFile
+  LicenseDetection licenseDetection = LicenseDetection.DEFAULT
+  Duration unresolvablePomsTtl = Duration.ofHours( 24 )
+  private boolean builtinLicenseDatabase
+  private boolean buildCacheMetadata
+  private File licenseDatabaseFile
+  private LicenseNameMatcher licenseNameMatcher
+  private LicenseDetection resolvedLicenseDetection
+  private final LicenseOverrideIndex licenseOverrideIndex = new LicenseOverrideIndex()
 
   void license( String license )
   {
@@ -49,6 +64,151 @@ class HonkerExtension
     this.projectOrganization = projectOrganization
   }
 
+  void lockFile( Object lockFile )
+  {
+    this.lockFile = project.file( lockFile )
+  }
+
+  /**
+   * Set the ordered license detection tiers, detection stops at the first tier detecting a license.
+   *
+   * @param tiers Names of {@link LicenseDetection.Tier}, case insensitive, omitted tiers are not run
+   */
+  void licenseDetection( String... tiers )
+  {
+    this.licenseDetection = new LicenseDetection( tiers.collect { String tier ->
+      LicenseDetection.Tier.valueOf( tier.toUpperCase( Locale.US ) )
+    } )
+  }
+
+  /**
+   * Use the license database bundled with honker, see {@link LicenseDatabase}.
+   */
+  void licenseDatabase()
+  {
+    this.builtinLicenseDatabase = true
+    this.licenseDatabaseFile = null
+    this.resolvedLicenseDetection = null
+  }
+
+  /**
+   * Use a license database file, e.g. written by the {@literal honkerLicenseDatabase} task.
+   */
+  void licenseDatabase( Object file )
+  {
+    this.builtinLicenseDatabase = false
+    this.licenseDatabaseFile = project.file( file )
+    this.resolvedLicenseDetection = null
+  }
+
+  File getLicenseDatabaseFile()
+  {
+    return licenseDatabaseFile
+  }
+
+  /**
+   * Store the metadata extracted from artifacts in the Gradle build cache, local or remote, so that it is reused by
+   * other machines, see {@link HonkerMetadataTask}.
+   */
+  void buildCacheMetadata()
+  {
+    this.buildCacheMetadata = true
+  }
+
+  boolean isBuildCacheMetadata()
+  {
+    return buildCacheMetadata
+  }
+
+  /**
+   * Match license names approximately when they are not known exactly, see {@link LicenseNameMatcher}.
+   */
+  void fuzzyLicenseNames()
+  {
+    fuzzyLicenseNames( LicenseNameMatcher.DEFAULT_THRESHOLD )
+  }
+
+  /**
+   * Match license names approximately when they are not known exactly, see {@link LicenseNameMatcher}.
+   *
+   * @param threshold Minimum similarity, between 0 exclusive and 1 inclusive
+   */
+  void fuzzyLicenseNames( double threshold )
+  {
+    this.licenseNameMatcher = new LicenseNameMatcher( threshold )
+    this.resolvedLicenseDetection = null
+  }
+
+  /**
+   * @return License detection tiers, along with the license database and license name matcher if set
+   */
+  synchronized LicenseDetection getLicenseDetection()
+  {
+    def database = builtinLicenseDatabase || licenseDatabaseFile != null
+    if( !database && licenseNameMatcher == null )
+    {
+      return licenseDetection
+    }
+    if( resolvedLicenseDetection == null || resolvedLicenseDetection.tiers != licenseDetection.tiers )
+    {
+      resolvedLicenseDetection = licenseDetection
+        .withDatabase( database ? readLicenseDatabase() : null )
+        .withNameMatcher( licenseNameMatcher )
+    }
+    return resolvedLicenseDetection
+  }
+
+  private LicenseDatabase readLicenseDatabase()
+  {
+    if( builtinLicenseDatabase )
+    {
+      return LicenseDatabase.builtin()
+    }
+    try
+    {
+      return LicenseDatabase.read( licenseDatabaseFile )
+    }
+    catch( IOException ex )
+    {
+      throw new GradleException( "Unable to read license database $licenseDatabaseFile", ex )
+    }
+  }
+
+  /**
+   * Set how long POMs that couldn't be resolved are not retried.
+   */
+  void unresolvablePomsTtl( Duration ttl )
+  {
+    this.unresolvablePomsTtl = ttl
+  }
+
+  /**
+   * Declare a license override.
+   *
+   * @param notation Exact coordinates, version range, module, module glob or group prefix,
+   *                 see {@link LicenseOverrideIndex}
+   * @param license License name or url
+   */
+  void licenseOverride( String notation, String license )
+  {
+    licenseOverrideIndex.add( notation, license )
+  }
+
+  /**
+   * Declare license overrides.
+   *
+   * @param overrides License names or urls keyed by notation
+   */
+  void licenseOverride( Map<String, String> overrides )
+  {
+    overrides.each { String notation, String license -> licenseOverride( notation, license ) }
+  }
+
+  LicenseOverrideIndex getLicenseOverrideIndex()
+  {
+    return licenseOverrideIndex
+  }
+
   void licenseOverride( Action<HonkerLicenseOverrideCandidate> action )
   {
     licenseOverrides.add( action )
@@ -64,5 +224,6 @@ class HonkerExtension
   HonkerExtension( Project project )
   {
     this.project = project
+    this.lockFile = project.file( 'honker.lock' )
   }
 }
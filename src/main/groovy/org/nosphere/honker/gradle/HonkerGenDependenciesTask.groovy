@@ -20,14 +20,17 @@ import org.gradle.api.DefaultTask
 import org.gradle.api.artifacts.Configuration
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
 import org.gradle.api.tasks.Optional
 import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.PathSensitive
 import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
 import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.deptree.DepTree
 import org.nosphere.honker.deptree.DepTreeData
-import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.gradle.deptree.GradleDepTreesLoader
 import org.nosphere.honker.visitors.DependenciesByOrganizationsVisitor
 
 /**
@@ -40,7 +43,38 @@ class HonkerGenDependenciesTask extends DefaultTask
 
   @InputFiles
   @PathSensitive(PathSensitivity.RELATIVE)
-  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+  List<Configuration> configurations = [ project.configurations.getByName( 'runtimeClasspath' ) ]
+
+  private boolean defaultConfigurations = true
+
+  @Internal
+  Configuration getConfiguration()
+  {
+    return configurations.first()
+  }
+
+  void setConfiguration( Configuration configuration )
+  {
+    setConfigurations( [ configuration ] )
+  }
+
+  void setConfigurations( List<Configuration> configurations )
+  {
+    this.configurations = configurations
+    defaultConfigurations = false
+  }
+
+  /**
+   * Replace the default {@literal runtimeClasspath} configuration on first use, add to the given ones afterwards.
+   */
+  void configurations( Configuration... configurations )
+  {
+    if( defaultConfigurations )
+    {
+      setConfigurations( [ ] )
+    }
+    this.configurations.addAll configurations
+  }
 
   @Optional
   @Input
@@ -60,14 +94,21 @@ class HonkerGenDependenciesTask extends DefaultTask
   void generate()
   {
     def honker = project.extensions.getByType HonkerExtension
-    def depTree = new GradleDepTreeLoader( project, configuration ).load()
-    def depsVisitor = new DependenciesByOrganizationsVisitor()
-    depTree.accept depsVisitor
+    def depTrees = new GradleDepTreesLoader( project, configurations, EnumSet.of( Facet.LICENSES, Facet.ATTRIBUTION ) ).load()
+    def dependencies = DepTree.collect( depTrees.values(), DependenciesByOrganizationsVisitor.collector() )
 
     File target = new File( outputDir, resourcePath )
     target.parentFile.mkdirs()
+    target.text = dependenciesText( honker.projectName ?: project.name, dependencies, header, footer )
+    project.logger.info "Generated DEPENDENCIES file into $target.absolutePath"
+  }
 
-    def dependencies = depsVisitor.dependenciesByOrganizations
+  /**
+   * @param dependencies Artifacts by organization, see {@link DependenciesByOrganizationsVisitor}
+   */
+  static String dependenciesText( String projectName, Map<String, Set<DepTreeData.Artifact>> dependencies,
+                                  String header, String footer )
+  {
     def depsText = ''
     if( header )
     {
@@ -79,7 +120,7 @@ class HonkerGenDependenciesTask extends DefaultTask
             // build dependencies listed by organization.
             // ------------------------------------------------------------------
 
-            ${ honker.projectName ?: project.name }
+            $projectName
 
             """.stripIndent()
     dependencies.keySet().each { orgName ->
@@ -97,7 +138,6 @@ class HonkerGenDependenciesTask extends DefaultTask
     {
       depsText += "\n$footer"
     }
-    target.text = depsText
-    project.logger.info "Generated DEPENDENCIES file into $target.absolutePath"
+    return depsText
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.GradleException
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.TaskAction
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+import org.nosphere.honker.visitors.GroupedTexts
+import org.nosphere.honker.visitors.ThirdPartyTextsVisitor
+
+/**
+ * Third Party NOTICE and LICENSE Generation Task.
+ * <p>
+ * Aggregates the NOTICE and LICENSE texts of the dependencies that need a mention given the project's license.
+ * Identical texts are written once, followed by the list of the artifacts they cover.
+ */
+@CacheableTask
+@CompileStatic
+class HonkerGenThirdPartyTask extends HonkerCacheableTask
+{
+  private static final String SEPARATOR = '-' * 72
+
+  @OutputDirectory
+  File outputDir = project.file "$project.buildDir/generated-resources/third-party"
+
+  HonkerGenThirdPartyTask()
+  {
+    super( EnumSet.of( Facet.LICENSES, Facet.LICENSE_FILES ) )
+  }
+
+  @Input
+  String noticeResourcePath = 'META-INF/NOTICE-THIRD-PARTY.txt'
+
+  @Input
+  String licenseResourcePath = 'META-INF/LICENSE-THIRD-PARTY.txt'
+
+  @Input
+  String getProjectLicense()
+  {
+    def license = project.extensions.getByType( HonkerExtension ).license
+    if( !license )
+    {
+      throw new GradleException( "Project's license is required to tell which dependencies need a mention" )
+    }
+    return license
+  }
+
+  @Optional
+  @Input
+  String getProjectName()
+  {
+    return project.extensions.getByType( HonkerExtension ).projectName ?: project.name
+  }
+
+  @TaskAction
+  void generate()
+  {
+    def texts = new ThirdPartyTextsVisitor( License.valueOfLicenseName( projectLicense ) )
+    new GradleDepTreeLoader( artifactLoader, configuration ).stream texts
+    artifactLoader.report logger
+    write new File( outputDir, noticeResourcePath ), "Third party notices of $projectName", texts.notices
+    write new File( outputDir, licenseResourcePath ), "Third party licenses of $projectName", texts.licenses
+  }
+
+  private void write( File target, String title, GroupedTexts texts )
+  {
+    target.parentFile.mkdirs()
+    target.withWriter( 'UTF-8' ) { Writer writer ->
+      writer.write "$title\n"
+      if( texts.isEmpty() )
+      {
+        writer.write '\nNo dependency needs a mention.\n'
+      }
+      texts.groups.each { GroupedTexts.Group group ->
+        writer.write "\n$SEPARATOR\nApplies to:\n"
+        group.coordinates.each { String coordinates ->
+          writer.write "  - $coordinates\n"
+        }
+        writer.write '\n'
+        writer.write group.text
+        writer.write '\n'
+      }
+    }
+    logger.info "Generated ${ texts.groups.size() } third party section(s) into $target.absolutePath"
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.deptree.DepTree
+import org.nosphere.honker.deptree.DepTreeData
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.deptree.DepTreeNode
+import org.nosphere.honker.deptree.DepTreeVisitor
+import org.nosphere.honker.deptree.LicenseDatabase
+import org.nosphere.honker.deptree.LicenseDetection
+import org.nosphere.honker.deptree.VersionRange
+import org.nosphere.honker.gradle.deptree.GradleDepTreesLoader
+
+/**
+ * License Database Generation Task.
+ * <p>
+ * Writes a binary license database, usable with the {@literal licenseDatabase} setting, made of, by order of
+ * precedence: the entries of the text sources, the licenses scanned from the artifacts of the configurations,
+ * pinned to their exact version, and the entries of the builtin database.
+ * <p>
+ * The builtin database is regenerated from its text source by disabling the two others, e.g.
+ * <pre>
+ * honkerLicenseDatabase {
+ *   sources = [ file( 'src/main/resources/org/nosphere/honker/license-database.txt' ) ]
+ *   configurations = [ ]
+ *   includeBuiltin = false
+ *   outputFile = file( 'src/main/resources/org/nosphere/honker/license-database.bin' )
+ * }
+ * </pre>
+ */
+@DisableCachingByDefault(because = "inputs don't take artifact metadata into account")
+@CompileStatic
+class HonkerLicenseDatabaseTask extends DefaultTask
+{
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  List<File> sources = [ ]
+
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  List<Configuration> configurations = [ project.configurations.getByName( 'runtimeClasspath' ) ]
+
+  @Input
+  boolean includeBuiltin = true
+
+  @OutputFile
+  File outputFile = project.file "$project.buildDir/honker/license-database.bin"
+
+  void configurations( Configuration... configurations )
+  {
+    this.configurations.addAll configurations
+  }
+
+  @TaskAction
+  void generate()
+  {
+    def entries = [ ] as List<LicenseDatabase.Entry>
+    if( includeBuiltin )
+    {
+      entries.addAll LicenseDatabase.builtin().entries
+    }
+    if( !configurations.isEmpty() )
+    {
+      def depTrees = new GradleDepTreesLoader( project, configurations, EnumSet.of( Facet.LICENSES ) ).load()
+      def collector = new ScannedEntriesCollector()
+      depTrees.values().each { DepTree depTree -> depTree.accept collector }
+      entries.addAll collector.entries
+      if( !collector.multiLicensed.isEmpty() )
+      {
+        logger.lifecycle "${ collector.multiLicensed.size() } multi-licensed artifact(s) left out of the database: " +
+                         collector.multiLicensed.join( ', ' )
+      }
+    }
+    sources.each { File source ->
+      source.withReader( 'UTF-8' ) { Reader reader -> entries.addAll LicenseDatabase.parse( reader ) }
+    }
+    outputFile.parentFile.mkdirs()
+    outputFile.withOutputStream { OutputStream output -> LicenseDatabase.write( entries, output ) }
+    logger.lifecycle "Wrote license database $outputFile.absolutePath"
+  }
+
+  /**
+   * Collect the licenses scanned from the artifacts, licenses coming from a license database are left out.
+   * Artifacts with several licenses are left out too, database entries have a single license and keeping only one of
+   * them would turn a choice of licenses into a conflict.
+   */
+  private static class ScannedEntriesCollector implements DepTreeVisitor
+  {
+    final List<LicenseDatabase.Entry> entries = [ ]
+    final Set<String> multiLicensed = new TreeSet<>()
+
+    @Override
+    boolean visitEnter( DepTreeNode node )
+    {
+      node.data.artifacts.each { DepTreeData.Artifact artifact ->
+        def tier = artifact.licenseTier
+        if( tier == null || tier == LicenseDetection.Tier.DATABASE )
+        {
+          return
+        }
+        if( artifact.detectedLicenses.size() > 1 )
+        {
+          multiLicensed << artifact.coordinates
+          return
+        }
+        def parts = artifact.coordinates.split( ':' )
+        if( parts.length < 3 )
+        {
+          return
+        }
+        def organization = artifact.organization
+        entries << new LicenseDatabase.Entry(
+          "${ parts[ 0 ] }:${ parts[ 1 ] }".toString(),
+          VersionRange.parse( "[${ parts[ 2 ] }]".toString() ),
+          artifact.detectedLicenses.first(),
+          organization == 'Unknown Organization' ? null : organization
+        )
+      }
+      return true
+    }
+
+    @Override
+    boolean visitExit( DepTreeNode node )
+    {
+      return true
+    }
+  }
+}
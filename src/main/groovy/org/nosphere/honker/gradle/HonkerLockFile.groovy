@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.json.JsonOutput
+import groovy.json.JsonSlurper
+import groovy.transform.CompileStatic
+import org.gradle.api.logging.Logging
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTreeData.Artifact
+import org.nosphere.honker.deptree.DepTreeData.Manifest
+import org.nosphere.honker.deptree.DepTreeData.Pom
+import org.nosphere.honker.deptree.DepTreeData.PomLicense
+
+/**
+ * Licensing metadata lock file.
+ * <p>
+ * Records, per resolved artifact, its checksum and the manifest and POMs extracted from it, licenses are detected
+ * again from these so that changes to the license detection apply to locked artifacts.
+ * Artifacts whose checksum didn't change are not scanned again.
+ * <p>
+ * Detected licenses and organization are also recorded so that changes to them show up when reviewing the lock file,
+ * they are never read back.
+ */
+@CompileStatic
+class HonkerLockFile
+{
+  static final int VERSION = 2
+
+  private final SortedMap<String, Entry> entries = new TreeMap<>()
+
+  static HonkerLockFile read( File file )
+  {
+    def lock = new HonkerLockFile()
+    if( !file.isFile() )
+    {
+      return lock
+    }
+    def json = new JsonSlurper().parse( file, 'UTF-8' ) as Map<String, Object>
+    if( json.version != VERSION )
+    {
+      // Not failing so that honkerLock can rewrite it
+      Logging.getLogger( HonkerLockFile ).warn(
+        "Ignoring honker lock file $file written in unsupported version '$json.version', run honkerLock to update it"
+      )
+      return lock
+    }
+    ( json.artifacts as Map<String, Map<String, Object>> ).each { String coordinates, Map<String, Object> entry ->
+      lock.put new Entry(
+        coordinates, entry.checksum as String,
+        readManifest( entry.manifest as Map ), readPom( entry.embeddedPom as Map ), readPom( entry.pom as Map ),
+        entry.licenses as List<String>, entry.organization as String
+      )
+    }
+    return lock
+  }
+
+  /**
+   * @return The locked entry if its checksum is the same, {@literal null} otherwise
+   */
+  Entry get( String coordinates, String checksum )
+  {
+    def entry = entries[ coordinates ]
+    return entry?.checksum == checksum ? entry : null
+  }
+
+  void put( Entry entry )
+  {
+    entries[ entry.coordinates ] = entry
+  }
+
+  boolean isEmpty()
+  {
+    return entries.isEmpty()
+  }
+
+  void write( File file )
+  {
+    def artifacts = new LinkedHashMap<String, Object>()
+    entries.values().each { Entry entry ->
+      artifacts[ entry.coordinates ] = [
+        checksum    : entry.checksum,
+        licenses    : entry.licenses,
+        organization: entry.organization,
+        manifest    : writeManifest( entry.manifest ),
+        embeddedPom : writePom( entry.embeddedPom ),
+        pom         : writePom( entry.pom )
+      ]
+    }
+    file.parentFile.mkdirs()
+    file.setText( JsonOutput.prettyPrint( JsonOutput.toJson( [ version: VERSION, artifacts: artifacts ] ) ) + '\n', 'UTF-8' )
+  }
+
+  private static Manifest readManifest( Map json )
+  {
+    if( json == null )
+    {
+      return Manifest.EMPTY
+    }
+    return new Manifest(
+      json.name as String, json.version as String, json.vendor as String, json.url as String, json.license as String
+    )
+  }
+
+  private static Map writeManifest( Manifest manifest )
+  {
+    return [
+      name   : manifest.name,
+      version: manifest.version,
+      vendor : manifest.vendor,
+      url    : manifest.url,
+      license: manifest.license
+    ]
+  }
+
+  private static Pom readPom( Map json )
+  {
+    if( json == null )
+    {
+      return null
+    }
+    def licenses = ( json.licenses as List<Map> ).collect { Map license ->
+      new PomLicense(
+        license.name as String, license.url as String, license.distribution as String, license.comments as String
+      )
+    }
+    return new Pom(
+      json.organization as String, json.organizationUrl as String,
+      json.name as String, json.version as String, json.url as String,
+      licenses
+    )
+  }
+
+  private static Map writePom( Pom pom )
+  {
+    if( pom == null )
+    {
+      return null
+    }
+    return [
+      organization   : pom.organization,
+      organizationUrl: pom.organizationUrl,
+      name           : pom.name,
+      version        : pom.version,
+      url            : pom.url,
+      licenses       : pom.licenses.collect { PomLicense license ->
+        [
+          name        : license.name,
+          url         : license.url,
+          distribution: license.distribution,
+          comments    : license.comments
+        ]
+      }
+    ]
+  }
+
+  /**
+   * Locked artifact metadata.
+   */
+  static class Entry
+  {
+    final String coordinates
+    final String checksum
+    final Manifest manifest
+    final Pom embeddedPom
+    final Pom pom
+    /**
+     * Detected licenses and organization, for review only, {@literal null} when read from older lock files
+     */
+    final List<String> licenses
+    final String organization
+
+    Entry( String coordinates, String checksum, Manifest manifest, Pom embeddedPom, Pom pom,
+           List<String> licenses, String organization )
+    {
+      this.coordinates = coordinates
+      this.checksum = checksum
+      this.manifest = manifest
+      this.embeddedPom = embeddedPom
+      this.pom = pom
+      this.licenses = licenses
+      this.organization = organization
+    }
+
+    Entry( Artifact artifact, String checksum )
+    {
+      this(
+        artifact.coordinates, checksum, artifact.manifest, artifact.embeddedPom, artifact.pom,
+        artifact.detectedLicenses.collect { License license -> license.preferedName }, artifact.organization
+      )
+    }
+  }
+}
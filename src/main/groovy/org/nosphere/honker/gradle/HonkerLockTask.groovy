@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.gradle.deptree.GradleDepTreesLoader
+
+/**
+ * Licensing metadata lock file update Task.
+ */
+@DisableCachingByDefault(because = "the lock file is meant to be committed alongside the build")
+@CompileStatic
+class HonkerLockTask extends DefaultTask
+{
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  List<Configuration> configurations = [ project.configurations.getByName( 'runtimeClasspath' ) ]
+
+  @Internal
+  Configuration getConfiguration()
+  {
+    return configurations.first()
+  }
+
+  void setConfiguration( Configuration configuration )
+  {
+    configurations = [ configuration ]
+  }
+
+  void configurations( Configuration... configurations )
+  {
+    this.configurations.addAll configurations
+  }
+
+  @OutputFile
+  File getLockFile()
+  {
+    return project.extensions.getByType( HonkerExtension ).lockFile
+  }
+
+  @TaskAction
+  void lock()
+  {
+    def loader = new GradleDepTreesLoader( project, configurations, EnumSet.of( Facet.LICENSES, Facet.ATTRIBUTION ) )
+    loader.load()
+    loader.artifactLoader.updatedLock.write lockFile
+    def incomplete = loader.artifactLoader.incompletePoms
+    if( !incomplete.isEmpty() )
+    {
+      logger.warn "${ incomplete.size() } artifact(s) left out of the lock file as their POM chain couldn't be resolved, " +
+                  "they are scanned again by later builds: $incomplete"
+    }
+    logger.info "Wrote licensing metadata lock file $lockFile.absolutePath"
+  }
+}
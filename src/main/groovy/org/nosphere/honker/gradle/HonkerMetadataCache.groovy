@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import com.google.common.cache.Cache
+import com.google.common.cache.CacheBuilder
+import groovy.transform.CompileStatic
+import java.util.concurrent.Callable
+import java.util.concurrent.atomic.AtomicInteger
+import org.gradle.api.logging.Logger
+import org.gradle.api.logging.Logging
+import org.gradle.api.provider.Property
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+import org.nosphere.honker.gradle.deptree.CachedArtifactMetadata
+
+/**
+ * Artifacts metadata cache shared by all builds run by a Gradle daemon.
+ * <p>
+ * Metadata is keyed by artifact file path, size and last modification time.
+ * The cache is bounded and its values are softly referenced so that they are released under memory pressure.
+ */
+@CompileStatic
+abstract class HonkerMetadataCache implements BuildService<Params>, AutoCloseable
+{
+  public static final String NAME = 'honkerMetadataCache'
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000
+
+  interface Params extends BuildServiceParameters
+  {
+    Property<Long> getMaximumSize()
+  }
+
+  private static final Logger LOGGER = Logging.getLogger( HonkerMetadataCache )
+
+  // Outlives the service instance, which is created for each build
+  private static Cache<String, CachedArtifactMetadata> daemonCache
+  private static long daemonCacheMaximumSize
+
+  private static synchronized Cache<String, CachedArtifactMetadata> daemonCache( long maximumSize )
+  {
+    if( daemonCache == null || daemonCacheMaximumSize != maximumSize )
+    {
+      daemonCache = CacheBuilder.newBuilder().maximumSize( maximumSize ).softValues().build()
+      daemonCacheMaximumSize = maximumSize
+    }
+    return daemonCache
+  }
+
+  private final AtomicInteger hits = new AtomicInteger()
+  private final AtomicInteger misses = new AtomicInteger()
+
+  /**
+   * @return Cached metadata of the given artifact file, empty if it wasn't extracted yet
+   */
+  CachedArtifactMetadata get( File artifactFile )
+  {
+    def key = "$artifactFile.absolutePath:${ artifactFile.length() }:${ artifactFile.lastModified() }".toString()
+    boolean missed = false
+    def metadata = daemonCache( parameters.maximumSize.get() ).get( key, {
+      missed = true
+      new CachedArtifactMetadata()
+    } as Callable<CachedArtifactMetadata> )
+    ( missed ? misses : hits ).incrementAndGet()
+    return metadata
+  }
+
+  @Override
+  void close()
+  {
+    if( hits.get() + misses.get() > 0 )
+    {
+      LOGGER.info "Honker metadata cache: ${ hits.get() } hit(s), ${ misses.get() } miss(es)"
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.nosphere.honker.gradle.deptree.GradleMetadataStore
+
+/**
+ * Artifacts Metadata Extraction Task, for one bucket of the external artifacts.
+ * <p>
+ * Only added when {@literal buildCacheMetadata()} is set. Its cache key is made of the coordinates and checksums of
+ * the artifacts of its bucket, its output is hence stored in the build cache, local or remote, and reused by other
+ * machines resolving the same artifacts, see {@link GradleMetadataStore}.
+ */
+@CacheableTask
+@CompileStatic
+class HonkerMetadataTask extends DefaultTask
+{
+  /**
+   * Configurations of the honker tasks by default, see {@link HonkerPlugin}.
+   */
+  @Internal
+  List<Configuration> configurations = [ project.configurations.getByName( 'runtimeClasspath' ) ]
+
+  @Input
+  int bucket
+
+  void configurations( Configuration... configurations )
+  {
+    this.configurations.addAll configurations
+  }
+
+  @Input
+  int getExtractorVersion()
+  {
+    return GradleMetadataStore.EXTRACTOR_VERSION
+  }
+
+  /**
+   * @return {@literal coordinates@checksum} of the artifacts of the bucket
+   */
+  @Input
+  SortedSet<String> getArtifacts()
+  {
+    return GradleMetadataStore.keys( configurations, bucket )
+  }
+
+  @OutputFile
+  File getOutputFile()
+  {
+    return GradleMetadataStore.bucketFile( project, bucket )
+  }
+
+  @TaskAction
+  void extract()
+  {
+    def leftOut = GradleMetadataStore.extract( project, configurations, bucket, outputFile )
+    if( leftOut > 0 )
+    {
+      logger.info "Honker metadata bucket $bucket: $leftOut artifact(s) with unresolved POMs left out"
+    }
+  }
+}
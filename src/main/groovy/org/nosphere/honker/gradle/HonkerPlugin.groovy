@@ -20,8 +20,12 @@ import org.gradle.api.GradleException
 import org.gradle.api.Plugin
 import org.gradle.api.Project
 import org.gradle.api.Task
+import org.gradle.api.artifacts.Configuration
 import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.provider.Provider
+import org.gradle.api.services.BuildServiceSpec
 import org.nosphere.honker.License
+import org.nosphere.honker.gradle.deptree.GradleMetadataStore
 
 /**
  * Honker Plugin.
@@ -40,15 +44,52 @@ class HonkerPlugin implements Plugin<Project>
       project.plugins.apply JavaPlugin
     }
     project.extensions.create 'honker', HonkerExtension, project
+    def metadataCache = project.gradle.sharedServices.registerIfAbsent(
+      HonkerMetadataCache.NAME, HonkerMetadataCache
+    ) { BuildServiceSpec<HonkerMetadataCache.Params> spec ->
+      spec.parameters.maximumSize.set HonkerMetadataCache.DEFAULT_MAXIMUM_SIZE
+    }
     Task reportTask = project.task(
       'honkerReport',
       type: HonkerReportTask,
       description: 'Report dependencies licensing.'
     )
-    Task checkTask = project.task(
+    HonkerCheckTask checkTask = project.task(
       'honkerCheck',
       type: HonkerCheckTask,
       description: 'Check for dependencies licensing issues (missing and conflicts).'
+    ) as HonkerCheckTask
+    HonkerCheckMergeTask checkMergeTask = project.task(
+      'honkerCheckMerge',
+      type: HonkerCheckMergeTask,
+      description: 'Merge the results of sharded honkerCheck runs and generate the DEPENDENCIES file.'
+    ) as HonkerCheckMergeTask
+    checkMergeTask.shardsDir = checkTask.shardsDir
+    checkMergeTask.mustRunAfter checkTask
+    project.task(
+      'honkerWhy',
+      type: HonkerWhyTask,
+      description: 'Explain which first level dependencies pull a dependency in, use --artifact=group:module.'
+    )
+    Task diffTask = project.task(
+      'honkerDiff',
+      type: HonkerDiffTask,
+      description: 'Print the dependencies licensing changes compared to a baseline.'
+    )
+    Task sbomTask = project.task(
+      'honkerSbom',
+      type: HonkerSbomTask,
+      description: 'Generate a CycloneDX Software Bill of Materials of the dependencies.'
+    )
+    Task lockTask = project.task(
+      'honkerLock',
+      type: HonkerLockTask,
+      description: 'Write or update the dependencies licensing metadata lock file.'
+    )
+    Task licenseDatabaseTask = project.task(
+      'honkerLicenseDatabase',
+      type: HonkerLicenseDatabaseTask,
+      description: 'Generate a license database from the dependencies licensing.'
     )
     Task genLicenseTask = project.task(
       'honkerGenLicense',
@@ -65,6 +106,15 @@ class HonkerPlugin implements Plugin<Project>
       type: HonkerGenDependenciesTask,
       description: 'Generate project\'s DEPENDENCIES file.'
     ) as HonkerGenDependenciesTask
+    Task genThirdPartyTask = project.task(
+      'honkerGenThirdParty',
+      type: HonkerGenThirdPartyTask,
+      description: 'Generate aggregated third party NOTICE and LICENSE files of the dependencies.'
+    )
+    List<Task> metadataConsumers = [
+      reportTask, checkTask, diffTask, sbomTask, lockTask, licenseDatabaseTask, genDependenciesTask, genThirdPartyTask
+    ]
+    metadataConsumers.each { Task task -> task.usesService metadataCache }
     project.afterEvaluate { Project proj ->
       // License declaration is mandatory
       def honker = proj.extensions.getByType HonkerExtension
@@ -72,7 +122,43 @@ class HonkerPlugin implements Plugin<Project>
       {
         throw new GradleException( "Invalid/unknown project's license: '$honker.license'" );
       }
+      if( honker.buildCacheMetadata )
+      {
+        addMetadataTasks proj, metadataCache, metadataConsumers
+      }
+    }
+  }
+
+  /**
+   * Add the build cache metadata tasks, covering the configurations of the tasks consuming their metadata, and run
+   * them before these tasks.
+   */
+  private static void addMetadataTasks( Project project, Provider<HonkerMetadataCache> metadataCache,
+                                        List<Task> consumers )
+  {
+    def configurations = new LinkedHashSet<Configuration>()
+    consumers.each { Task task ->
+      if( task.hasProperty( 'configurations' ) )
+      {
+        configurations.addAll task.property( 'configurations' ) as List<Configuration>
+      }
+      else
+      {
+        configurations.add task.property( 'configuration' ) as Configuration
+      }
+    }
+    def metadataTasks = ( 0..<GradleMetadataStore.BUCKETS ).collect { int bucket ->
+      def metadataTask = project.task(
+        "honkerMetadata$bucket",
+        type: HonkerMetadataTask,
+        description: "Extract the metadata of the artifacts of bucket $bucket, stored in the build cache."
+      ) as HonkerMetadataTask
+      metadataTask.bucket = bucket
+      metadataTask.configurations = new ArrayList<Configuration>( configurations )
+      metadataTask.usesService metadataCache
+      return metadataTask as Task
     }
+    consumers.each { Task task -> task.dependsOn metadataTasks }
   }
 }
 
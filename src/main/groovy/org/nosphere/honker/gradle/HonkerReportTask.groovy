@@ -15,35 +15,137 @@
  */
 package org.nosphere.honker.gradle
 
-import groovy.transform.CompileStatic;
-import org.gradle.api.DefaultTask
-import org.gradle.api.artifacts.Configuration
-import org.gradle.api.tasks.InputFiles
-import org.gradle.api.tasks.PathSensitive
-import org.gradle.api.tasks.PathSensitivity
+import groovy.json.JsonOutput
+import groovy.json.StreamingJsonBuilder
+import groovy.transform.CompileStatic
+import org.apache.commons.io.IOUtils
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
 import org.gradle.api.tasks.TaskAction
-import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTree
+import org.nosphere.honker.deptree.DepTreeData
+import org.nosphere.honker.deptree.DepTreeNode
+import org.nosphere.honker.deptree.DepTreeVisitor
 import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
-import org.nosphere.honker.visitors.LicensingReportVisitor
 
-@DisableCachingByDefault(because = "Console report")
+/**
+ * Dependencies Licensing Report Task.
+ * <p>
+ * Writes the JSON report data as the dependency tree is streamed, along with an HTML viewer that renders the dependency
+ * graph lazily. The data is assigned to {@literal window.honkerReport} in a script so that the viewer can load it when
+ * opened from the file system. Only a one line summary is printed on the console.
+ */
+@CacheableTask
 @CompileStatic
-class HonkerReportTask extends DefaultTask
+class HonkerReportTask extends HonkerCacheableTask
 {
-  @InputFiles
-  @PathSensitive(PathSensitivity.RELATIVE)
-  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+  @OutputDirectory
+  File outputDir = project.file "$project.buildDir/reports/honker/report"
+
+  HonkerReportTask()
+  {
+    super( EnumSet.allOf( DepTreeData.Facet ) )
+  }
+
+  @Optional
+  @Input
+  String getProjectLicense()
+  {
+    return project.extensions.getByType( HonkerExtension ).license
+  }
 
   @TaskAction
   void report()
   {
-    def depTree = new GradleDepTreeLoader( project, configuration ).load()
-    def visitor = new LicensingReportVisitor();
-
-    println "------------------------------------------------------------------------------------------------------"
-    println ""
-    depTree.accept( visitor );
-    println ""
-    println "------------------------------------------------------------------------------------------------------"
+    outputDir.mkdirs()
+    ModulesWriter modulesWriter = null
+    DepTree graph = null
+    new File( outputDir, 'report.js' ).withWriter( 'UTF-8' ) { Writer writer ->
+      def json = new StreamingJsonBuilder( writer )
+      writer.write 'window.honkerReport = {"project":'
+      writer.write JsonOutput.toJson( "$project.group:$project.name:$project.version".toString() )
+      writer.write ',"configuration":'
+      writer.write JsonOutput.toJson( configuration.name )
+      writer.write ',"modules":['
+      modulesWriter = new ModulesWriter( writer, json )
+      graph = new GradleDepTreeLoader( artifactLoader, configuration ).stream( modulesWriter )
+      artifactLoader.report logger
+      writer.write '],"roots":'
+      json.call( graph.roots )
+      writer.write ',"edges":'
+      json.call( graph.edges )
+      writer.write ',"summary":'
+      json.call( modulesWriter.summary )
+      writer.write '};\n'
+    }
+    getClass().getResourceAsStream( 'report.html' ).withCloseable { InputStream viewer ->
+      new File( outputDir, 'index.html' ).withOutputStream { OutputStream output -> IOUtils.copy( viewer, output ) }
+    }
+    def summary = modulesWriter.summary
+    logger.lifecycle(
+      "Honker report: ${ summary.modules } module(s), ${ summary.artifacts } artifact(s), " +
+      "${ summary.unlicensed } without detected license, see ${ new File( outputDir, 'index.html' ).toURI() }"
+    )
+  }
+
+  private static class ModulesWriter implements DepTreeVisitor
+  {
+    private final Writer writer
+    private final StreamingJsonBuilder json
+    private final Set<String> written = new HashSet<>()
+    private int artifacts = 0
+    private int unlicensed = 0
+
+    ModulesWriter( Writer writer, StreamingJsonBuilder json )
+    {
+      this.writer = writer
+      this.json = json
+    }
+
+    Map<String, Integer> getSummary()
+    {
+      return [ modules: written.size(), artifacts: artifacts, unlicensed: unlicensed ]
+    }
+
+    @Override
+    boolean visitEnter( DepTreeNode node )
+    {
+      if( !written.add( node.data.coordinates ) )
+      {
+        return true
+      }
+      def moduleArtifacts = node.data.artifacts.collect { DepTreeData.Artifact artifact ->
+        artifacts++
+        if( artifact.detectedLicenses.isEmpty() )
+        {
+          unlicensed++
+        }
+        [
+          coordinates : artifact.coordinates,
+          organization: artifact.organization,
+          name        : artifact.name,
+          version     : artifact.version,
+          url         : artifact.url,
+          licenses    : artifact.detectedLicenses.collect { License lic -> lic.preferedName },
+          licenseTier : artifact.licenseTier?.name(),
+          licenseFiles: artifact.licenseFiles.collect { DepTreeData.SomeFile file -> file.originalPath }
+        ]
+      }
+      if( written.size() > 1 )
+      {
+        writer.write ','
+      }
+      json.call( [ id: node.data.coordinates, artifacts: moduleArtifacts ] )
+      return true
+    }
+
+    @Override
+    boolean visitExit( DepTreeNode node )
+    {
+      return true
+    }
   }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.json.StreamingJsonBuilder
+import groovy.transform.CompileStatic
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.TaskAction
+import org.nosphere.honker.License
+import org.nosphere.honker.deptree.DepTreeData
+import org.nosphere.honker.deptree.DepTreeData.Facet
+import org.nosphere.honker.deptree.DepTreeNode
+import org.nosphere.honker.deptree.DepTreeVisitor
+import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+
+/**
+ * CycloneDX Software Bill of Materials Generation Task.
+ * <p>
+ * Components are written as the dependency tree is streamed, the metadata of their artifacts being released once
+ * written. The dependency graph, pending nodes and edges, is still held in memory until the dependencies are written.
+ */
+@CacheableTask
+@CompileStatic
+class HonkerSbomTask extends HonkerCacheableTask
+{
+  @OutputFile
+  File outputFile = project.file "$project.buildDir/reports/honker/bom.cdx.json"
+
+  HonkerSbomTask()
+  {
+    super( EnumSet.of( Facet.LICENSES ) )
+  }
+
+  @Optional
+  @Input
+  String getProjectLicense()
+  {
+    return project.extensions.getByType( HonkerExtension ).license
+  }
+
+  @Input
+  String getProjectCoordinates()
+  {
+    return "$project.group:$project.name:$project.version".toString()
+  }
+
+  @TaskAction
+  void generate()
+  {
+    def loader = new GradleDepTreeLoader( artifactLoader, configuration )
+    outputFile.parentFile.mkdirs()
+    outputFile.withWriter( 'UTF-8' ) { Writer writer ->
+      def json = new StreamingJsonBuilder( writer )
+      writer.write '{"bomFormat":"CycloneDX","specVersion":"1.4","version":1,"metadata":'
+      json.call( [
+        tools    : [ [ vendor: 'nosphere', name: 'honker' ] ],
+        component: [
+          type      : 'application',
+          'bom-ref' : projectCoordinates,
+          group     : project.group.toString(),
+          name      : project.name,
+          version   : project.version.toString()
+        ]
+      ] )
+      writer.write ',"components":['
+      def graph = loader.stream new ComponentsWriter( writer, json )
+      artifactLoader.report logger
+      writer.write '],"dependencies":['
+      json.call( [ ref: projectCoordinates, dependsOn: graph.roots ] )
+      graph.edges.each { String coordinates, Set<String> dependsOn ->
+        writer.write ','
+        json.call( [ ref: coordinates, dependsOn: dependsOn ] )
+      }
+      writer.write ']}\n'
+    }
+    logger.info "Generated CycloneDX SBOM file into $outputFile.absolutePath"
+  }
+
+  private static class ComponentsWriter implements DepTreeVisitor
+  {
+    private final Writer writer
+    private final StreamingJsonBuilder json
+    private boolean first = true
+
+    ComponentsWriter( Writer writer, StreamingJsonBuilder json )
+    {
+      this.writer = writer
+      this.json = json
+    }
+
+    @Override
+    boolean visitEnter( DepTreeNode node )
+    {
+      def coordinates = node.data.coordinates
+      def parts = coordinates.split( ':' )
+      def licenses = new LinkedHashSet<License>()
+      node.data.artifacts.each { DepTreeData.Artifact artifact -> licenses.addAll artifact.detectedLicenses }
+      def component = [
+        type     : 'library',
+        'bom-ref': coordinates,
+        group    : parts[ 0 ],
+        name     : parts.length > 1 ? parts[ 1 ] : coordinates,
+        version  : parts.length > 2 ? parts[ 2 ] : '',
+        purl     : parts.length > 2 ? "pkg:maven/${ parts[ 0 ] }/${ parts[ 1 ] }@${ parts[ 2 ] }".toString() : null,
+        licenses : licenses.collect { License lic -> [ license: [ name: lic.preferedName, url: lic.preferedUrl ] ] }
+      ] as Map<String, Object>
+      if( component.purl == null )
+      {
+        component.remove 'purl'
+      }
+      if( !first )
+      {
+        writer.write ','
+      }
+      first = false
+      json.call( component )
+      return true
+    }
+
+    @Override
+    boolean visitExit( DepTreeNode node )
+    {
+      return true
+    }
+  }
+}
@@ -15,8 +15,12 @@
  */
 package org.nosphere.honker.gradle
 
+import com.google.common.hash.Hashing
+import com.google.common.io.Files
 import groovy.transform.CompileStatic
+import java.util.regex.Pattern
 import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.ModuleVersionIdentifier
 import org.gradle.api.artifacts.ResolvedArtifact
 import org.gradle.api.artifacts.ResolvedDependency
 
@@ -36,6 +40,11 @@ class HonkerUtils
     return new Gav( dependency.getModuleGroup(), dependency.getModuleName(), dependency.getModuleVersion() )
   }
 
+  static Gav gavOf( ModuleVersionIdentifier moduleVersion )
+  {
+    return new Gav( moduleVersion.group, moduleVersion.name, moduleVersion.version )
+  }
+
   static Gav gavOf( ResolvedArtifact artifact )
   {
     return new Gav(
@@ -45,6 +54,65 @@ class HonkerUtils
     )
   }
 
+  /**
+   * Artifact checksum.
+   * <p>
+   * Artifacts resolved from the Gradle module cache are stored in a directory named after their SHA-1,
+   * their checksum is then taken from the resolution result for free.
+   * Other files are hashed.
+   *
+   * @param file Artifact file
+   * @return Artifact SHA-1 checksum, hex encoded without leading zeros
+   */
+  static String checksumOf( File file )
+  {
+    if( moduleCacheFilesDirOf( file ) != null )
+    {
+      return file.parentFile.name
+    }
+    return new BigInteger( 1, Files.hash( file, Hashing.sha1() ).asBytes() ).toString( 16 )
+  }
+
+  /**
+   * Files of the Gradle module cache are stored in {@literal files-2.1/<group>/<module>/<version>/<sha1>/}.
+   *
+   * @param file Artifact file
+   * @return The {@literal files-2.1} directory the artifact is stored in, {@literal null} if not in a module cache
+   */
+  static File moduleCacheFilesDirOf( File file )
+  {
+    def parent = file.parentFile
+    if( parent != null && parent.name ==~ SHA1_DIRECTORY_NAME )
+    {
+      def filesDir = parent.parentFile?.parentFile?.parentFile?.parentFile
+      if( filesDir?.name == 'files-2.1' )
+      {
+        return filesDir
+      }
+    }
+    return null
+  }
+
+  private static final Pattern SHA1_DIRECTORY_NAME = ~/[0-9a-f]{1,40}/
+
+  /**
+   * @param paths Paths from first level dependencies, see {@link org.nosphere.honker.deptree.DepGraphIndex}
+   * @param limit Maximum number of paths that were searched
+   * @return Human readable description of the dependency paths
+   */
+  static String describePaths( String coordinates, List<List<String>> paths, int limit )
+  {
+    def description = new StringBuilder( "$coordinates is pulled in by:" )
+    paths.each { List<String> path ->
+      description.append( '\n    ' ).append( path.size() == 1 ? "$coordinates (first level)" : path.join( ' -> ' ) )
+    }
+    if( paths.size() >= limit )
+    {
+      description.append( '\n    ...' )
+    }
+    return description.toString()
+  }
+
   private HonkerUtils()
   {
   }
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle
+
+import groovy.transform.CompileStatic
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.TaskAction
+import org.gradle.api.tasks.options.Option
+import org.gradle.work.DisableCachingByDefault
+import org.nosphere.honker.deptree.DepGraphIndex
+import org.nosphere.honker.gradle.deptree.GradleDepTreeLoader
+
+/**
+ * Dependency Paths Query Task.
+ * <p>
+ * Prints the paths from first level dependencies to the given dependency, no artifact is fetched.
+ */
+@DisableCachingByDefault(because = "only prints to the console")
+@CompileStatic
+class HonkerWhyTask extends DefaultTask
+{
+  @Internal
+  Configuration configuration = project.configurations.getByName 'runtimeClasspath'
+
+  @Input
+  @Option(option = 'artifact', description = 'The dependency to explain, group:module or group:module:version.')
+  String artifact
+
+  @Input
+  int maxPaths = 20
+
+  @TaskAction
+  void why()
+  {
+    if( !artifact )
+    {
+      throw new GradleException( 'No dependency to explain, use --artifact=group:module' )
+    }
+    def index = new DepGraphIndex( new GradleDepTreeLoader( project, configuration ).loadGraph() )
+    def matches = index.find( artifact )
+    if( matches.isEmpty() )
+    {
+      logger.lifecycle "$artifact is not a dependency of $configuration.name"
+      return
+    }
+    matches.each { String coordinates ->
+      logger.lifecycle HonkerUtils.describePaths( coordinates, index.pathsTo( coordinates, maxPaths ), maxPaths )
+    }
+  }
+}
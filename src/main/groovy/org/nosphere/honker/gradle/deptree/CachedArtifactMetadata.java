@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle.deptree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.nosphere.honker.deptree.DepTreeData;
+
+/**
+ * Metadata extracted from an artifact file, filled as facets get extracted.
+ * <p>
+ * Only holds data extracted from the artifact, never references the build model, so that it can outlive builds.
+ * Artifacts with identical content may share the same metadata, the POM chain depends on the coordinates the content
+ * was published under and is hence kept per coordinates.
+ */
+public final class CachedArtifactMetadata
+{
+    private DepTreeData.Manifest manifest;
+    private boolean embeddedPomLoaded;
+    private DepTreeData.Pom embeddedPom;
+    private final Map<String, DepTreeData.Pom> poms = new HashMap<>();
+    private List<DepTreeData.SomeFile> licenseFiles;
+
+    public synchronized DepTreeData.Manifest getManifest()
+    {
+        return manifest;
+    }
+
+    public synchronized void setManifest( DepTreeData.Manifest manifest )
+    {
+        this.manifest = manifest;
+    }
+
+    public synchronized boolean isEmbeddedPomLoaded()
+    {
+        return embeddedPomLoaded;
+    }
+
+    public synchronized DepTreeData.Pom getEmbeddedPom()
+    {
+        return embeddedPom;
+    }
+
+    public synchronized void setEmbeddedPom( DepTreeData.Pom embeddedPom )
+    {
+        this.embeddedPom = embeddedPom;
+        this.embeddedPomLoaded = true;
+    }
+
+    public synchronized DepTreeData.Pom getPom( String coordinates )
+    {
+        return poms.get( coordinates );
+    }
+
+    public synchronized void setPom( String coordinates, DepTreeData.Pom pom )
+    {
+        poms.put( coordinates, pom );
+    }
+
+    public synchronized List<DepTreeData.SomeFile> getLicenseFiles()
+    {
+        return licenseFiles;
+    }
+
+    public synchronized void setLicenseFiles( Collection<DepTreeData.SomeFile> licenseFiles )
+    {
+        this.licenseFiles = Collections.unmodifiableList( new ArrayList<>( licenseFiles ) );
+    }
+
+    /**
+     * Fill the facets not extracted yet with the ones of an artifact having the same content, e.g. read from a store.
+     */
+    public synchronized void seed( DepTreeData.Artifact artifact )
+    {
+        if( manifest == null )
+        {
+            manifest = artifact.getManifest();
+        }
+        if( !embeddedPomLoaded )
+        {
+            embeddedPom = artifact.getEmbeddedPom();
+            embeddedPomLoaded = true;
+        }
+        if( poms.get( artifact.getCoordinates() ) == null && artifact.getPom() != null )
+        {
+            poms.put( artifact.getCoordinates(), artifact.getPom() );
+        }
+        if( licenseFiles == null )
+        {
+            licenseFiles = Collections.unmodifiableList( new ArrayList<>( artifact.getLicenseFiles() ) );
+        }
+    }
+}
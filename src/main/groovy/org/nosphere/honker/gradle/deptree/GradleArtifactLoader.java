@@ -0,0 +1,544 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle.deptree;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.services.BuildServiceRegistration;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+
+import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.DepTreeFilesLoader;
+import org.nosphere.honker.deptree.DepTreeManifestLoader;
+import org.nosphere.honker.deptree.Gav;
+import org.nosphere.honker.deptree.LicenseNameMatcher;
+import org.nosphere.honker.gradle.HonkerExtension;
+import org.nosphere.honker.gradle.HonkerLicenseOverrideCandidate;
+import org.nosphere.honker.gradle.HonkerLockFile;
+import org.nosphere.honker.gradle.HonkerMetadataCache;
+import org.nosphere.honker.gradle.HonkerUtils;
+
+/**
+ * Artifacts licensing data loader.
+ * <p>
+ * Extracts each artifact metadata at most once, so that it can be shared across several dependency trees.
+ * Only the facets declared by the calling task are extracted upfront, others are extracted on first access.
+ * Artifacts with identical content, e.g. relocations, classifier twins or re-publications, are parsed once.
+ */
+public class GradleArtifactLoader
+{
+    /**
+     * Artifact type attribute of resolved variants, set from the artifact extension unless registered otherwise.
+     */
+    private static final Attribute<String> ARTIFACT_TYPE = Attribute.of( "artifactType", String.class );
+
+    private final Project project;
+    private final DepTreeManifestLoader manifestLoader;
+    private final GradlePomLoader pomLoader;
+    private final DepTreeFilesLoader licenseFilesLoader;
+    private final Set<DepTreeData.Facet> facets;
+    private final Map<String, DepTreeData.Artifact> loaded = new HashMap<>();
+    private final Map<String, String> checksums = new LinkedHashMap<>();
+    private final Map<String, CachedArtifactMetadata> contents = new HashMap<>();
+    private final Map<String, Set<String>> coordinatesByChecksum = new LinkedHashMap<>();
+    private final Map<String, Long> sizeByChecksum = new HashMap<>();
+    private final Map<File, String> retainedChecksums = new HashMap<>();
+    private final Map<String, Integer> retainedByChecksum = new HashMap<>();
+    private final HonkerLockFile lock;
+    private final HonkerMetadataCache metadataCache;
+    private final Map<String, List<DepTreeData.Artifact>> stored;
+    private int storedHits;
+    private final Set<String> unlocked = new TreeSet<>();
+    private final Set<String> incompletePoms = new HashSet<>();
+
+    public GradleArtifactLoader( Project project, Set<DepTreeData.Facet> facets )
+    {
+        this.project = project;
+        this.facets = facets;
+        this.manifestLoader = new DepTreeManifestLoader();
+        this.pomLoader = new GradlePomLoader( project );
+        this.licenseFilesLoader = new DepTreeFilesLoader();
+        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
+        this.lock = ext.getLockFile() != null ? HonkerLockFile.read( ext.getLockFile() ) : new HonkerLockFile();
+        BuildServiceRegistration<?, ?> cacheRegistration = project.getGradle().getSharedServices().getRegistrations()
+                                                                  .findByName( HonkerMetadataCache.NAME );
+        this.metadataCache = cacheRegistration != null
+                             ? (HonkerMetadataCache) cacheRegistration.getService().get()
+                             : null;
+        this.stored = ext.isBuildCacheMetadata()
+                      ? GradleMetadataStore.read( project )
+                      : Collections.<String, List<DepTreeData.Artifact>>emptyMap();
+    }
+
+    /**
+     * Artifacts whose POM chain couldn't be resolved are left out, see {@link #getIncompletePoms()}.
+     *
+     * @return Lock of all the external artifacts loaded so far and not released, extracting their locked facets
+     */
+    public HonkerLockFile getUpdatedLock()
+    {
+        HonkerLockFile updatedLock = new HonkerLockFile();
+        for( Map.Entry<String, String> checksum : checksums.entrySet() )
+        {
+            HonkerLockFile.Entry entry = new HonkerLockFile.Entry( loaded.get( checksum.getKey() ), checksum.getValue() );
+            if( !incompletePoms.contains( checksum.getKey() ) )
+            {
+                updatedLock.put( entry );
+            }
+        }
+        return updatedLock;
+    }
+
+    /**
+     * @return Coordinates of the loaded external artifacts whose POM chain couldn't be resolved
+     */
+    public Set<String> getIncompletePoms()
+    {
+        Set<String> coordinates = new TreeSet<>();
+        for( String key : incompletePoms )
+        {
+            coordinates.add( key.substring( 0, key.indexOf( '@' ) ) );
+        }
+        return coordinates;
+    }
+
+    /**
+     * @return Coordinates of the loaded external artifacts that were new or changed compared to the lock file
+     */
+    public Set<String> getUnlocked()
+    {
+        return Collections.unmodifiableSet( unlocked );
+    }
+
+    public boolean isLocked()
+    {
+        return !lock.isEmpty();
+    }
+
+    /**
+     * @return Coordinates of the loaded external artifacts having identical content, keyed by checksum
+     */
+    public Map<String, Set<String>> getAliases()
+    {
+        Map<String, Set<String>> aliases = new LinkedHashMap<>();
+        for( Map.Entry<String, Set<String>> entry : coordinatesByChecksum.entrySet() )
+        {
+            if( entry.getValue().size() > 1 )
+            {
+                aliases.put( entry.getKey(), Collections.unmodifiableSet( entry.getValue() ) );
+            }
+        }
+        return aliases;
+    }
+
+    /**
+     * Report the loaded artifacts aliases, the license names matched approximately and the POMs that couldn't be
+     * resolved.
+     */
+    public void report( Logger logger )
+    {
+        if( storedHits > 0 )
+        {
+            logger.info( "Honker metadata store: {} artifact(s) reused from the build cache", storedHits );
+        }
+        reportAliases( logger );
+        reportLicenseNameMatches( logger );
+        pomLoader.reportFailures( logger );
+    }
+
+    private void reportLicenseNameMatches( Logger logger )
+    {
+        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
+        LicenseNameMatcher matcher = ext.getLicenseDetection().getNameMatcher();
+        if( matcher == null )
+        {
+            return;
+        }
+        Map<String, LicenseNameMatcher.Match> matches = matcher.drainMatches();
+        if( matches.isEmpty() )
+        {
+            return;
+        }
+        StringBuilder report = new StringBuilder();
+        for( Map.Entry<String, LicenseNameMatcher.Match> match : matches.entrySet() )
+        {
+            report.append( "\n  '" ).append( match.getKey() ).append( "' as " ).append( match.getValue() );
+        }
+        logger.lifecycle( "{} license name(s) matched approximately:{}", matches.size(), report );
+    }
+
+    private void reportAliases( Logger logger )
+    {
+        Map<String, Set<String>> aliases = getAliases();
+        if( aliases.isEmpty() )
+        {
+            return;
+        }
+        long duplicatedBytes = 0;
+        StringBuilder report = new StringBuilder();
+        for( Map.Entry<String, Set<String>> alias : aliases.entrySet() )
+        {
+            duplicatedBytes += sizeByChecksum.get( alias.getKey() ) * ( alias.getValue().size() - 1 );
+            report.append( "\n  " ).append( StringUtils.join( alias.getValue(), " = " ) );
+        }
+        logger.lifecycle(
+            "{} artifact(s) have identical content under several coordinates, {} duplicated byte(s):{}",
+            aliases.size(), duplicatedBytes, report
+        );
+    }
+
+    /**
+     * @return Count of the POMs that couldn't be resolved so far
+     */
+    public int getPomFailures()
+    {
+        return pomLoader.getFailures();
+    }
+
+    /**
+     * Resolve the POM chains of the external components of the given configuration ahead of loading their artifacts,
+     * without fetching any artifact file.
+     *
+     * @return Coordinates of the external components whose POM chain couldn't be resolved
+     */
+    public Set<String> resolvePoms( Configuration configuration )
+    {
+        Set<String> unresolved = new TreeSet<>();
+        for( ResolvedComponentResult component : configuration.getIncoming().getResolutionResult().getAllComponents() )
+        {
+            if( !( component.getId() instanceof ModuleComponentIdentifier ) )
+            {
+                continue;
+            }
+            if( !pomLoader.resolve( HonkerUtils.gavOf( component.getModuleVersion() ) ) )
+            {
+                unresolved.add( component.getModuleVersion().toString() );
+            }
+        }
+        return unresolved;
+    }
+
+    public DepTreeData.Artifact loadProjectArtifact( ModuleVersionIdentifier moduleVersion )
+    {
+        String key = moduleVersion.toString();
+        DepTreeData.Artifact data = loaded.get( key );
+        if( data == null )
+        {
+            data = gatherProjectArtifactData( moduleVersion );
+            loaded.put( key, data );
+        }
+        return data;
+    }
+
+    public DepTreeData.Artifact loadExternalArtifact( ModuleVersionIdentifier moduleVersion,
+                                                      ResolvedArtifactResult artifact )
+    {
+        File file = artifact.getFile();
+        String coordinates = extractCoordinates( moduleVersion, artifact );
+        String key = coordinates + '@' + file.getAbsolutePath();
+        DepTreeData.Artifact data = loaded.get( key );
+        if( data == null )
+        {
+            String checksum = retainedChecksums.get( file );
+            if( checksum == null )
+            {
+                checksum = HonkerUtils.checksumOf( file );
+            }
+            recordContent( coordinates, file, checksum );
+            data = gatherExternalArtifactData( moduleVersion, coordinates, file, checksum );
+            data.load( facets );
+            loaded.put( key, data );
+            checksums.put( key, checksum );
+        }
+        return data;
+    }
+
+    /**
+     * Declare external artifact files that are going to be loaded then released, so that the metadata shared by the
+     * ones having identical content is kept until the last of them is released.
+     */
+    public void retainExternalArtifacts( Collection<ResolvedArtifactResult> artifacts )
+    {
+        for( ResolvedArtifactResult artifact : artifacts )
+        {
+            File file = artifact.getFile();
+            String checksum = retainedChecksums.get( file );
+            if( checksum == null )
+            {
+                checksum = HonkerUtils.checksumOf( file );
+                retainedChecksums.put( file, checksum );
+            }
+            Integer retained = retainedByChecksum.get( checksum );
+            retainedByChecksum.put( checksum, retained == null ? 1 : retained + 1 );
+        }
+    }
+
+    /**
+     * Forget a loaded external artifact so that its metadata can be garbage collected,
+     * it is loaded again if requested later.
+     * Metadata shared with artifacts having identical content is only forgotten once none of them is retained anymore,
+     * see {@link #retainExternalArtifacts(Collection)}.
+     */
+    public void releaseExternalArtifact( ModuleVersionIdentifier moduleVersion, ResolvedArtifactResult artifact )
+    {
+        File file = artifact.getFile();
+        String key = extractCoordinates( moduleVersion, artifact ) + '@' + file.getAbsolutePath();
+        if( loaded.remove( key ) == null )
+        {
+            return;
+        }
+        String checksum = checksums.remove( key );
+        incompletePoms.remove( key );
+        retainedChecksums.remove( file );
+        Integer retained = retainedByChecksum.get( checksum );
+        if( retained != null && retained > 1 )
+        {
+            retainedByChecksum.put( checksum, retained - 1 );
+        }
+        else
+        {
+            retainedByChecksum.remove( checksum );
+            contents.remove( checksum );
+        }
+    }
+
+    private void recordContent( String artifactCoordinates, File file, String checksum )
+    {
+        Set<String> coordinates = coordinatesByChecksum.get( checksum );
+        if( coordinates == null )
+        {
+            coordinates = new LinkedHashSet<>();
+            coordinatesByChecksum.put( checksum, coordinates );
+            sizeByChecksum.put( checksum, file.length() );
+        }
+        coordinates.add( artifactCoordinates );
+    }
+
+    /**
+     * @return Metadata shared by all artifacts having the given content
+     */
+    private CachedArtifactMetadata contentMetadata( File file, String checksum )
+    {
+        CachedArtifactMetadata metadata = contents.get( checksum );
+        if( metadata == null )
+        {
+            metadata = metadataCache != null ? metadataCache.get( file ) : new CachedArtifactMetadata();
+            List<DepTreeData.Artifact> sameContent = stored.get( checksum );
+            if( sameContent != null )
+            {
+                for( DepTreeData.Artifact artifact : sameContent )
+                {
+                    metadata.seed( artifact );
+                }
+                storedHits++;
+            }
+            contents.put( checksum, metadata );
+        }
+        return metadata;
+    }
+
+    private DepTreeData.Artifact gatherProjectArtifactData( ModuleVersionIdentifier moduleVersion )
+    {
+        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
+
+        String organization = StringUtils.isNotEmpty( ext.getProjectOrganization() )
+                              ? ext.getProjectOrganization()
+                              : moduleVersion.getGroup();
+        String name = StringUtils.isNotEmpty( ext.getProjectName() ) ? ext.getProjectName() : moduleVersion.getName();
+        String version = moduleVersion.getVersion();
+
+        License lic = License.valueOfLicenseName( ext.getLicense() );
+        DepTreeData.Pom pom = new DepTreeData.Pom(
+            organization, null,
+            name, version, null,
+            Arrays.asList( new DepTreeData.PomLicense( lic.getPreferedName(), lic.getPreferedUrl(), null, null ) )
+        );
+
+        return new DepTreeData.Artifact( moduleVersion + ":jar", DepTreeData.Manifest.EMPTY, pom, null, null );
+    }
+
+    private DepTreeData.Artifact gatherExternalArtifactData( ModuleVersionIdentifier moduleVersion,
+                                                             String coordinates,
+                                                             File file,
+                                                             String checksum )
+    {
+        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
+        Gav gav = HonkerUtils.gavOf( moduleVersion );
+        HonkerLockFile.Entry locked = lock.get( coordinates, checksum );
+        if( locked == null )
+        {
+            unlocked.add( coordinates );
+        }
+        String overridenLicense = ext.getLicenseOverrideIndex().find( gav );
+        if( overridenLicense == null && ext.getLicenseOverrides() != null )
+        {
+            for( Action<HonkerLicenseOverrideCandidate> strategy : ext.getLicenseOverrides() )
+            {
+                HonkerLicenseOverrideCandidate candidate = new HonkerLicenseOverrideCandidate( gav );
+                strategy.execute( candidate );
+                if( candidate.getLicense() != null )
+                {
+                    overridenLicense = candidate.getLicense();
+                    break;
+                }
+            }
+        }
+        return new DepTreeData.Artifact(
+            coordinates, checksum, new ExternalArtifactSource( file, checksum, coordinates, gav, locked ),
+            overridenLicense, ext.getLicenseDetection()
+        );
+    }
+
+    /**
+     * Extracts facets from the artifact file, or from its lock entry when the artifact didn't change.
+     * Facets extracted from the file are shared with later builds through the daemon metadata cache, facets read from
+     * the build cache metadata store are used instead of extracting them, see {@link GradleMetadataStore}.
+     */
+    private final class ExternalArtifactSource
+        implements DepTreeData.ArtifactSource
+    {
+        private final File file;
+        private final String coordinates;
+        private final Gav gav;
+        private final HonkerLockFile.Entry locked;
+        private final CachedArtifactMetadata cached;
+
+        private ExternalArtifactSource( File file,
+                                        String checksum,
+                                        String coordinates,
+                                        Gav gav,
+                                        HonkerLockFile.Entry locked )
+        {
+            this.file = file;
+            this.coordinates = coordinates;
+            this.gav = gav;
+            this.locked = locked;
+            this.cached = contentMetadata( file, checksum );
+        }
+
+        @Override
+        public DepTreeData.Manifest loadManifest()
+        {
+            if( locked != null )
+            {
+                return locked.getManifest();
+            }
+            if( cached.getManifest() == null )
+            {
+                cached.setManifest( manifestLoader.load( file ) );
+            }
+            return cached.getManifest();
+        }
+
+        @Override
+        public DepTreeData.Pom loadEmbeddedPom()
+        {
+            if( locked != null )
+            {
+                return locked.getEmbeddedPom();
+            }
+            if( !cached.isEmbeddedPomLoaded() )
+            {
+                cached.setEmbeddedPom( pomLoader.loadEmbedded( file ) );
+            }
+            return cached.getEmbeddedPom();
+        }
+
+        @Override
+        public DepTreeData.Pom loadPom()
+        {
+            if( locked != null )
+            {
+                return locked.getPom();
+            }
+            if( cached.getPom( coordinates ) != null )
+            {
+                return cached.getPom( coordinates );
+            }
+            int failures = pomLoader.getFailures();
+            DepTreeData.Pom pom = pomLoader.load( file, gav );
+            if( pomLoader.getFailures() == failures )
+            {
+                // Don't keep POMs missing unresolved parents
+                cached.setPom( coordinates, pom );
+            }
+            else
+            {
+                incompletePoms.add( coordinates + '@' + file.getAbsolutePath() );
+            }
+            return pom;
+        }
+
+        @Override
+        public Collection<DepTreeData.SomeFile> loadLicenseFiles()
+        {
+            if( cached.getLicenseFiles() == null )
+            {
+                cached.setLicenseFiles( licenseFilesLoader.load( file ) );
+            }
+            return cached.getLicenseFiles();
+        }
+    }
+
+    /**
+     * Artifact type comes from the artifact type attribute of its variant, classifier from its identifier, whose
+     * name is made of the module name, version and classifier whatever the name of the artifact file, e.g. for
+     * unique snapshots.
+     *
+     * @return {@literal group:module:version:type[:classifier]}
+     */
+    static String extractCoordinates( ModuleVersionIdentifier moduleVersion, ResolvedArtifactResult artifact )
+    {
+        String artifactName = StringUtils.substringBefore( artifact.getId().getDisplayName(), " (" );
+        String type = artifact.getVariant().getAttributes().getAttribute( ARTIFACT_TYPE );
+        if( type == null )
+        {
+            type = FilenameUtils.getExtension( artifactName );
+        }
+        String baseName = FilenameUtils.removeExtension( artifactName );
+        String classifierPrefix = moduleVersion.getName() + '-' + moduleVersion.getVersion() + '-';
+        StringBuilder coordinates = new StringBuilder();
+        coordinates.append( moduleVersion.toString() ).append( ':' ).append( type );
+        if( baseName.startsWith( classifierPrefix ) && baseName.length() > classifierPrefix.length() )
+        {
+            coordinates.append( ':' ).append( baseName.substring( classifierPrefix.length() ) );
+        }
+        return coordinates.toString();
+    }
+}
@@ -16,244 +16,447 @@
 package org.nosphere.honker.gradle.deptree;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import groovy.lang.Closure;
-
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.ArtifactView;
 import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.ResolvedArtifact;
-import org.gradle.api.artifacts.ResolvedDependency;
-import org.gradle.api.artifacts.ProjectDependency;
-
-import org.apache.commons.lang.StringUtils;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.specs.Specs;
 
-import org.nosphere.honker.License;
 import org.nosphere.honker.deptree.DepTree;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeFilesLoader;
 import org.nosphere.honker.deptree.DepTreeLoader;
-import org.nosphere.honker.deptree.DepTreeManifestLoader;
 import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreePomLoader;
-import org.nosphere.honker.deptree.Gav;
-import org.nosphere.honker.gradle.HonkerExtension;
-import org.nosphere.honker.gradle.HonkerLicenseOverrideCandidate;
-import org.nosphere.honker.gradle.HonkerUtils;
+import org.nosphere.honker.deptree.DepTreeVisitor;
 
+/**
+ * Loads the dependency tree of a configuration.
+ * <p>
+ * The dependency graph is walked from the configuration resolution result before any artifact file is fetched.
+ * Artifact files are then fetched at once through an artifact view, letting Gradle download them in parallel.
+ * Project components are told apart by their component identifier, their artifacts are never fetched.
+ */
 public class GradleDepTreeLoader
     implements DepTreeLoader
 {
-    private final Project project;
-    private final DepTreeManifestLoader manifestLoader;
-    private final DepTreePomLoader pomLoader;
-    private final DepTreeFilesLoader licenseFilesLoader;
+    private final GradleArtifactLoader artifactLoader;
     private final Configuration configuration;
-    private final Set<Gav> projectDependencies = new HashSet<>();
-    private final Set<Gav> loaded = new HashSet<>();
+    private final Logger logger;
+    private final Set<ComponentIdentifier> loaded = new HashSet<>();
+    private final Map<String, Set<String>> edges = new LinkedHashMap<>();
 
     public GradleDepTreeLoader( Project project, Configuration configuration )
     {
-        this.project = project;
-        this.manifestLoader = new DepTreeManifestLoader();
-        this.pomLoader = new GradlePomLoader( project );
-        this.licenseFilesLoader = new DepTreeFilesLoader();
+        this( project, configuration, EnumSet.allOf( DepTreeData.Facet.class ) );
+    }
+
+    public GradleDepTreeLoader( Project project, Configuration configuration, Set<DepTreeData.Facet> facets )
+    {
+        this( new GradleArtifactLoader( project, facets ), configuration, project.getLogger() );
+    }
+
+    public GradleDepTreeLoader( GradleArtifactLoader artifactLoader, Configuration configuration )
+    {
+        this( artifactLoader, configuration, null );
+    }
+
+    /**
+     * @param logger Logger to report loaded artifacts aliases and failures to, {@literal null} when the artifact loader is shared
+     */
+    private GradleDepTreeLoader( GradleArtifactLoader artifactLoader, Configuration configuration, Logger logger )
+    {
+        this.artifactLoader = artifactLoader;
         this.configuration = configuration;
+        this.logger = logger;
+    }
 
-        // Recursively record project's Dependencies GAV in order to distinguish ResolvedDependencies later
-        for( Dependency dep : configuration.getAllDependencies() )
+    @Override
+    public DepTree load()
+    {
+        try
         {
-            if( ProjectDependency.class.isAssignableFrom( dep.getClass() ) )
+            Set<String> roots = new LinkedHashSet<>();
+            List<PendingNode> pendingRoots = walkGraph( roots );
+            Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts = externalArtifacts( configuration );
+            List<DepTreeNode> rootNodes = new ArrayList<>( pendingRoots.size() );
+            for( PendingNode pendingRoot : pendingRoots )
+            {
+                rootNodes.add( pendingRoot.create( null, artifacts ) );
+            }
+            if( logger != null )
             {
-                recordProjectDependency( (ProjectDependency) dep );
+                artifactLoader.report( logger );
             }
+            return new DepTree( rootNodes, roots, new LinkedHashMap<>( edges ) );
+        }
+        finally
+        {
+            loaded.clear();
+            edges.clear();
         }
     }
 
-    private void recordProjectDependency( ProjectDependency dependency )
+    /**
+     * Artifacts of streamed nodes are released from the artifact loader once visited,
+     * they are hence not part of its updated lock.
+     */
+    @Override
+    public DepTree stream( DepTreeVisitor visitor )
     {
-        Gav gav = new Gav( dependency.getGroup(), dependency.getName(), dependency.getVersion() );
-        if( projectDependencies.contains( gav ) )
-        {
-            // Already recorded
-            return;
-        }
-        projectDependencies.add( gav );
-        Project depProject = dependency.getDependencyProject();
-        Configuration depProjectConfig = depProject.getConfigurations().getByName( configuration.getName() );
-        for( Dependency dep : depProjectConfig.getAllDependencies() )
-        {
-            if( ProjectDependency.class.isAssignableFrom( dep.getClass() ) )
-            {
-                recordProjectDependency( (ProjectDependency) dep );
-            }
-        }
+        return stream( visitor, null );
     }
 
-    private boolean isProjectDependency( ResolvedDependency dependency )
+    /**
+     * @param visited Collects the artifacts of the streamed nodes instead of releasing them once visited, so that the
+     *                ones shared with other dependency trees are extracted once, {@literal null} to release them
+     */
+    DepTree stream( DepTreeVisitor visitor, Map<ResolvedArtifactResult, ModuleVersionIdentifier> visited )
     {
-        // return projectDependencies.contains( HonkerUtils.gavOf( dependency ) );
-        for( Gav projectDep : projectDependencies )
+        try
         {
-            if( dependency.getModuleGroup().equals( projectDep.getGroupId() )
-                && dependency.getModuleName().equals( projectDep.getArtifactId() )
-                && dependency.getModuleVersion().equals( projectDep.getVersion() ) )
+            Set<String> roots = new LinkedHashSet<>();
+            List<PendingNode> pendingRoots = walkGraph( roots );
+            Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts = externalArtifacts( configuration );
+            if( visited == null )
+            {
+                for( List<ResolvedArtifactResult> componentArtifacts : artifacts.values() )
+                {
+                    artifactLoader.retainExternalArtifacts( componentArtifacts );
+                }
+            }
+            for( PendingNode pendingRoot : pendingRoots )
             {
-                return true;
+                if( !pendingRoot.stream( visitor, artifacts, visited ) )
+                {
+                    break;
+                }
             }
+            if( logger != null )
+            {
+                artifactLoader.report( logger );
+            }
+            return new DepTree( Collections.<DepTreeNode>emptyList(), roots, new LinkedHashMap<>( edges ) );
+        }
+        finally
+        {
+            loaded.clear();
+            edges.clear();
         }
-        return false;
     }
 
-    @Override
-    public DepTree load()
+    /**
+     * Load only the dependencies whose coordinates are accepted by the given spec, the artifact files of the other
+     * dependencies are neither fetched nor loaded.
+     *
+     * @return Tree of the accepted dependencies, flattened in the order they are walked, with the complete roots and
+     *         edges of the dependency graph
+     */
+    public DepTree loadPartial( Spec<String> dependencies )
     {
         try
         {
-            List<DepTreeNode> rootNodes = new ArrayList<>();
-            for( ResolvedDependency dep : configuration.getResolvedConfiguration().getFirstLevelModuleDependencies() )
+            Set<String> roots = new LinkedHashSet<>();
+            List<PendingNode> accepted = new ArrayList<>();
+            for( PendingNode pendingRoot : walkGraph( roots ) )
+            {
+                pendingRoot.collect( dependencies, accepted );
+            }
+            final Set<ComponentIdentifier> acceptedIds = new HashSet<>();
+            for( PendingNode node : accepted )
             {
-                DepTreeNode rootNode = createRootNode( dep );
-                if( rootNode != null )
+                acceptedIds.add( node.component.getId() );
+            }
+            Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts = externalArtifacts(
+                configuration, new Spec<ComponentIdentifier>()
                 {
-                    rootNodes.add( rootNode );
+                    @Override
+                    public boolean isSatisfiedBy( ComponentIdentifier id )
+                    {
+                        return acceptedIds.contains( id );
+                    }
                 }
+            );
+            List<DepTreeNode> nodes = new ArrayList<>( accepted.size() );
+            for( PendingNode node : accepted )
+            {
+                nodes.add( new DepTreeNode( gatherDependencyData( node.component, node.artifactsOf( artifacts ) ) ) );
+            }
+            if( logger != null )
+            {
+                artifactLoader.report( logger );
             }
-            return new DepTree( rootNodes );
+            return new DepTree( nodes, roots, new LinkedHashMap<>( edges ) );
         }
         finally
         {
             loaded.clear();
+            edges.clear();
         }
     }
 
-    private DepTreeNode createRootNode( ResolvedDependency dependency )
+    /**
+     * @return The dependency graph, roots and edges only, without fetching nor loading any artifact
+     */
+    public DepTree loadGraph()
     {
-        Gav gav = HonkerUtils.gavOf( dependency );
-        if( loaded.contains( gav ) )
+        try
         {
-            // Prevent infinite recursion
-            return null;
+            Set<String> roots = new LinkedHashSet<>();
+            walkGraph( roots );
+            return new DepTree( Collections.<DepTreeNode>emptyList(), roots, new LinkedHashMap<>( edges ) );
         }
-        DepTreeNode node = new DepTreeNode( gatherDependencyData( dependency ) );
-        loaded.add( gav );
-        for( ResolvedDependency child : dependency.getChildren() )
+        finally
         {
-            createNode( node, child );
+            loaded.clear();
+            edges.clear();
         }
-        return node;
     }
 
-    private void createNode( DepTreeNode parentNode, ResolvedDependency dependency )
+    /**
+     * Walk the resolution result, recording edges, without fetching any artifact file.
+     *
+     * @param roots Collects the coordinates of the first level dependencies
+     * @return Pending root nodes
+     */
+    private List<PendingNode> walkGraph( Set<String> roots )
     {
-        Gav gav = HonkerUtils.gavOf( dependency );
-        if( loaded.contains( gav ) )
+        ResolvedComponentResult root = configuration.getIncoming().getResolutionResult().getRoot();
+        loaded.add( root.getId() );
+        List<PendingNode> pendingRoots = new ArrayList<>();
+        for( ResolvedComponentResult dependency : selectedDependenciesOf( root ) )
         {
-            // Prevent infinite recursion
-            return;
+            roots.add( coordinatesOf( dependency ) );
+            PendingNode rootNode = walk( dependency );
+            if( rootNode != null )
+            {
+                pendingRoots.add( rootNode );
+            }
+        }
+        return pendingRoots;
+    }
+
+    /**
+     * @return Artifacts of the external components of the configuration, their files fetched in parallel
+     */
+    static Map<ComponentIdentifier, List<ResolvedArtifactResult>> externalArtifacts( Configuration configuration )
+    {
+        return externalArtifacts( configuration, Specs.<ComponentIdentifier>satisfyAll() );
+    }
+
+    /**
+     * @return Artifacts of the external components of the configuration accepted by the given spec, their files
+     *         fetched in parallel
+     */
+    static Map<ComponentIdentifier, List<ResolvedArtifactResult>> externalArtifacts(
+        Configuration configuration, final Spec<ComponentIdentifier> components
+    )
+    {
+        ArtifactView view = configuration.getIncoming().artifactView( new Action<ArtifactView.ViewConfiguration>()
+        {
+            @Override
+            public void execute( ArtifactView.ViewConfiguration viewConfiguration )
+            {
+                viewConfiguration.componentFilter( new Spec<ComponentIdentifier>()
+                {
+                    @Override
+                    public boolean isSatisfiedBy( ComponentIdentifier id )
+                    {
+                        return !( id instanceof ProjectComponentIdentifier ) && components.isSatisfiedBy( id );
+                    }
+                } );
+            }
+        } );
+        Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts = new HashMap<>();
+        for( ResolvedArtifactResult artifact : view.getArtifacts().getArtifacts() )
+        {
+            ComponentIdentifier component = artifact.getId().getComponentIdentifier();
+            List<ResolvedArtifactResult> componentArtifacts = artifacts.get( component );
+            if( componentArtifacts == null )
+            {
+                componentArtifacts = new ArrayList<>();
+                artifacts.put( component, componentArtifacts );
+            }
+            componentArtifacts.add( artifact );
         }
-        DepTreeNode node = new DepTreeNode( parentNode, gatherDependencyData( dependency ) );
-        loaded.add( gav );
-        for( ResolvedDependency child : dependency.getChildren() )
+        return artifacts;
+    }
+
+    /**
+     * @return Selected components of the resolved dependencies of the given component, constraints excluded
+     */
+    static List<ResolvedComponentResult> selectedDependenciesOf( ResolvedComponentResult component )
+    {
+        List<ResolvedComponentResult> selected = new ArrayList<>();
+        for( DependencyResult dependency : component.getDependencies() )
         {
-            createNode( node, child );
+            if( dependency instanceof ResolvedDependencyResult && !dependency.isConstraint() )
+            {
+                selected.add( ( (ResolvedDependencyResult) dependency ).getSelected() );
+            }
         }
+        return selected;
     }
 
-    private DepTreeData gatherDependencyData( ResolvedDependency dependency )
+    private PendingNode walk( ResolvedComponentResult component )
     {
-        if( isProjectDependency( dependency ) )
+        if( !loaded.add( component.getId() ) )
         {
-            return gatherProjectDependencyData( dependency );
+            // Prevent infinite recursion
+            return null;
         }
-        else
+        PendingNode node = new PendingNode( component );
+        for( ResolvedComponentResult child : selectedDependenciesOf( component ) )
         {
-            return gatherExternalDependencyData( dependency );
+            recordEdge( component, child );
+            PendingNode childNode = walk( child );
+            if( childNode != null )
+            {
+                node.children.add( childNode );
+            }
         }
+        return node;
     }
 
-    private DepTreeData gatherProjectDependencyData( ResolvedDependency dependency )
+    /**
+     * Record all edges, including the ones pruned from the tree because their target was already loaded.
+     */
+    private void recordEdge( ResolvedComponentResult parent, ResolvedComponentResult child )
     {
-        Set<DepTreeData.Artifact> artifacts = new LinkedHashSet<>();
-        for( ResolvedArtifact artifact : dependency.getModuleArtifacts() )
+        String parentCoordinates = coordinatesOf( parent );
+        Set<String> children = edges.get( parentCoordinates );
+        if( children == null )
         {
-            artifacts.add( gatherProjectArtifactData( artifact ) );
+            children = new LinkedHashSet<>();
+            edges.put( parentCoordinates, children );
         }
-        String coordinates = dependency.getModule().getId().toString();
-        return new DepTreeData( coordinates, artifacts );
+        children.add( coordinatesOf( child ) );
     }
 
-    private DepTreeData.Artifact gatherProjectArtifactData( ResolvedArtifact artifact )
+    private static String coordinatesOf( ResolvedComponentResult component )
     {
-        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
-
-        String organization = StringUtils.isNotEmpty( ext.getProjectOrganization() )
-                              ? ext.getProjectOrganization()
-                              : artifact.getModuleVersion().getId().getGroup();
-        String name = StringUtils.isNotEmpty( ext.getProjectName() ) ? ext.getProjectName() : artifact.getName();
-        String version = artifact.getModuleVersion().getId().getVersion();
-
-        License lic = License.valueOfLicenseName( ext.getLicense() );
-        DepTreeData.Pom pom = new DepTreeData.Pom(
-            organization, null,
-            name, version, null,
-            Arrays.asList( new DepTreeData.PomLicense( lic.getPreferedName(), lic.getPreferedUrl(), null, null ) )
-        );
-
-        return new DepTreeData.Artifact( extractCoordinates( artifact ), DepTreeData.Manifest.EMPTY, pom, null, null );
+        return component.getModuleVersion().toString();
     }
 
-    private DepTreeData gatherExternalDependencyData( ResolvedDependency dependency )
+    private DepTreeData gatherDependencyData( ResolvedComponentResult component,
+                                              List<ResolvedArtifactResult> componentArtifacts )
     {
         Set<DepTreeData.Artifact> artifacts = new LinkedHashSet<>();
-        for( ResolvedArtifact artifact : dependency.getModuleArtifacts() )
+        if( component.getId() instanceof ProjectComponentIdentifier )
+        {
+            artifacts.add( artifactLoader.loadProjectArtifact( component.getModuleVersion() ) );
+        }
+        else
         {
-            artifacts.add( gatherExternalArtifactData( artifact ) );
+            for( ResolvedArtifactResult artifact : componentArtifacts )
+            {
+                artifacts.add( artifactLoader.loadExternalArtifact( component.getModuleVersion(), artifact ) );
+            }
         }
-        String coordinates = dependency.getModule().getId().toString();
-        return new DepTreeData( coordinates, artifacts );
+        return new DepTreeData( coordinatesOf( component ), artifacts );
     }
 
-    private DepTreeData.Artifact gatherExternalArtifactData( ResolvedArtifact artifact )
+    /**
+     * Dependency tree node whose artifacts are not loaded yet.
+     */
+    private final class PendingNode
     {
-        HonkerExtension ext = (HonkerExtension) project.getExtensions().getByName( "honker" );
-        Gav gav = HonkerUtils.gavOf( artifact );
-        String coordinates = extractCoordinates( artifact );
-        DepTreeData.Manifest manifest = manifestLoader.load( artifact.getFile() );
-        DepTreeData.Pom pom = pomLoader.load( artifact.getFile(), gav );
-        List<DepTreeData.SomeFile> licenseFiles = licenseFilesLoader.load( artifact.getFile() );
-        String overridenLicense = null;
-        if( ext.getLicenseOverrides() != null )
+        private final ResolvedComponentResult component;
+        private final List<PendingNode> children = new ArrayList<>();
+
+        private PendingNode( ResolvedComponentResult component )
+        {
+            this.component = component;
+        }
+
+        private DepTreeNode create( DepTreeNode parent,
+                                    Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts )
+        {
+            DepTreeData data = gatherDependencyData( component, artifactsOf( artifacts ) );
+            DepTreeNode node = parent == null ? new DepTreeNode( data ) : new DepTreeNode( parent, data );
+            for( PendingNode child : children )
+            {
+                child.create( node, artifacts );
+            }
+            return node;
+        }
+
+        /**
+         * Same contract as {@link DepTreeNode#accept(DepTreeVisitor)}, the node is released once visited unless
+         * collected into the given visited artifacts.
+         */
+        private boolean stream( DepTreeVisitor visitor,
+                                Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts,
+                                Map<ResolvedArtifactResult, ModuleVersionIdentifier> visited )
         {
-            for( Action<HonkerLicenseOverrideCandidate> strategy : ext.getLicenseOverrides() )
+            List<ResolvedArtifactResult> componentArtifacts = artifactsOf( artifacts );
+            DepTreeNode node = new DepTreeNode( gatherDependencyData( component, componentArtifacts ) );
+            if( visitor.visitEnter( node ) )
             {
-                HonkerLicenseOverrideCandidate candidate = new HonkerLicenseOverrideCandidate( gav );
-                strategy.execute( candidate );
-                if( candidate.getLicense() != null )
+                for( PendingNode child : children )
                 {
-                    overridenLicense = candidate.getLicense();
-                    break;
+                    if( !child.stream( visitor, artifacts, visited ) )
+                    {
+                        break;
+                    }
                 }
             }
+            boolean proceed = visitor.visitExit( node );
+            if( !( component.getId() instanceof ProjectComponentIdentifier ) )
+            {
+                for( ResolvedArtifactResult artifact : componentArtifacts )
+                {
+                    if( visited != null )
+                    {
+                        visited.put( artifact, component.getModuleVersion() );
+                    }
+                    else
+                    {
+                        artifactLoader.releaseExternalArtifact( component.getModuleVersion(), artifact );
+                    }
+                }
+            }
+            return proceed;
         }
-        return new DepTreeData.Artifact( coordinates, manifest, pom, licenseFiles, overridenLicense );
-    }
 
-    private static String extractCoordinates( ResolvedArtifact artifact )
-    {
-        StringBuilder coordinates = new StringBuilder();
-        coordinates.append( artifact.getModuleVersion().getId().toString() )
-                   .append( ':' ).append( artifact.getType() );
-        if( !StringUtils.isEmpty( artifact.getClassifier() ) )
+        /**
+         * Collect this node and its children accepted by the given spec, in walk order.
+         */
+        private void collect( Spec<String> dependencies, List<PendingNode> accepted )
+        {
+            if( dependencies.isSatisfiedBy( coordinatesOf( component ) ) )
+            {
+                accepted.add( this );
+            }
+            for( PendingNode child : children )
+            {
+                child.collect( dependencies, accepted );
+            }
+        }
+
+        private List<ResolvedArtifactResult> artifactsOf(
+            Map<ComponentIdentifier, List<ResolvedArtifactResult>> artifacts
+        )
         {
-            coordinates.append( ':' ).append( artifact.getClassifier() );
+            List<ResolvedArtifactResult> componentArtifacts = artifacts.get( component.getId() );
+            return componentArtifacts != null ? componentArtifacts : Collections.<ResolvedArtifactResult>emptyList();
         }
-        return coordinates.toString();
     }
 }
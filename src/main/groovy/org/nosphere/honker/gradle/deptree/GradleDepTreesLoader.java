@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle.deptree;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedVariantResult;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.specs.Spec;
+
+import org.nosphere.honker.deptree.DepTree;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.DepTreeVisitor;
+
+/**
+ * Loads the dependency trees of several configurations in one pass.
+ * <p>
+ * Artifacts metadata is extracted once for the union of all configurations.
+ * Configurations with identical resolution results share a single dependency tree.
+ */
+public class GradleDepTreesLoader
+{
+    private final Logger logger;
+    private final GradleArtifactLoader artifactLoader;
+    private final Collection<Configuration> configurations;
+
+    public GradleDepTreesLoader( Project project, Collection<Configuration> configurations )
+    {
+        this( project, configurations, EnumSet.allOf( DepTreeData.Facet.class ) );
+    }
+
+    public GradleDepTreesLoader( Project project,
+                                 Collection<Configuration> configurations,
+                                 Set<DepTreeData.Facet> facets )
+    {
+        this.logger = project.getLogger();
+        this.artifactLoader = new GradleArtifactLoader( project, facets );
+        this.configurations = configurations;
+    }
+
+    public GradleArtifactLoader getArtifactLoader()
+    {
+        return artifactLoader;
+    }
+
+    /**
+     * @return Dependency trees keyed by the names of the configurations that resolve to them
+     */
+    public Map<List<String>, DepTree> load()
+    {
+        Map<List<String>, DepTree> trees = new LinkedHashMap<>();
+        for( Map.Entry<List<String>, Configuration> entry : distinctConfigurations().entrySet() )
+        {
+            trees.put( entry.getKey(), new GradleDepTreeLoader( artifactLoader, entry.getValue() ).load() );
+        }
+        report();
+        return trees;
+    }
+
+    /**
+     * Stream each distinct dependency tree to the visitor created for the names of the configurations that resolve
+     * to it, see {@link GradleDepTreeLoader#stream(DepTreeVisitor)}.
+     * Artifacts are retained until all trees are streamed, so that the ones shared by several configurations are
+     * extracted once, and released at the end.
+     *
+     * @return Dependency graphs, roots and edges only, keyed by the names of the configurations that resolve to them
+     */
+    public Map<List<String>, DepTree> stream( Function<List<String>, DepTreeVisitor> visitors )
+    {
+        Map<ResolvedArtifactResult, ModuleVersionIdentifier> visited = new LinkedHashMap<>();
+        try
+        {
+            Map<List<String>, DepTree> graphs = new LinkedHashMap<>();
+            for( Map.Entry<List<String>, Configuration> entry : distinctConfigurations().entrySet() )
+            {
+                DepTreeVisitor visitor = visitors.apply( entry.getKey() );
+                graphs.put(
+                    entry.getKey(), new GradleDepTreeLoader( artifactLoader, entry.getValue() ).stream( visitor, visited )
+                );
+            }
+            report();
+            return graphs;
+        }
+        finally
+        {
+            for( Map.Entry<ResolvedArtifactResult, ModuleVersionIdentifier> artifact : visited.entrySet() )
+            {
+                artifactLoader.releaseExternalArtifact( artifact.getValue(), artifact.getKey() );
+            }
+        }
+    }
+
+    /**
+     * Load only the dependencies accepted by the given spec from each distinct dependency graph, see
+     * {@link GradleDepTreeLoader#loadPartial(Spec)}.
+     *
+     * @return Partial dependency trees keyed by the names of the configurations that resolve to them
+     */
+    public Map<List<String>, DepTree> loadPartial( Spec<String> dependencies )
+    {
+        Map<List<String>, DepTree> trees = new LinkedHashMap<>();
+        for( Map.Entry<List<String>, Configuration> entry : distinctConfigurations().entrySet() )
+        {
+            trees.put(
+                entry.getKey(), new GradleDepTreeLoader( artifactLoader, entry.getValue() ).loadPartial( dependencies )
+            );
+        }
+        report();
+        return trees;
+    }
+
+    /**
+     * Configurations are told apart by their dependency graphs and the variants of their dependencies instead of
+     * their artifact files, so that no artifact file is fetched before the graphs are walked.
+     *
+     * @return One configuration per distinct resolution result, keyed by the names of the configurations sharing it
+     */
+    private Map<List<String>, Configuration> distinctConfigurations()
+    {
+        Map<HashCode, List<String>> namesByFingerprint = new LinkedHashMap<>();
+        Map<HashCode, Configuration> configurationByFingerprint = new LinkedHashMap<>();
+        for( Configuration configuration : configurations )
+        {
+            HashCode fingerprint = fingerprintOf( configuration );
+            if( !namesByFingerprint.containsKey( fingerprint ) )
+            {
+                namesByFingerprint.put( fingerprint, new ArrayList<String>() );
+                configurationByFingerprint.put( fingerprint, configuration );
+            }
+            namesByFingerprint.get( fingerprint ).add( configuration.getName() );
+        }
+        Map<List<String>, Configuration> distinct = new LinkedHashMap<>();
+        for( Map.Entry<HashCode, List<String>> entry : namesByFingerprint.entrySet() )
+        {
+            distinct.put( entry.getValue(), configurationByFingerprint.get( entry.getKey() ) );
+        }
+        return distinct;
+    }
+
+    private void report()
+    {
+        artifactLoader.report( logger );
+        if( artifactLoader.isLocked() && !artifactLoader.getUnlocked().isEmpty() )
+        {
+            logger.warn(
+                "Licensing metadata lock file is out of date, {} new or changed artifact(s) were scanned, "
+                + "run honkerLock to update it: {}",
+                artifactLoader.getUnlocked().size(), artifactLoader.getUnlocked()
+            );
+        }
+    }
+
+    private static HashCode fingerprintOf( Configuration configuration )
+    {
+        Set<String> edges = new TreeSet<>();
+        ResolvedComponentResult root = configuration.getIncoming().getResolutionResult().getRoot();
+        for( ResolvedComponentResult dependency : GradleDepTreeLoader.selectedDependenciesOf( root ) )
+        {
+            edges.add( "> " + dependency.getId() );
+        }
+        Set<ComponentIdentifier> visited = new HashSet<>();
+        visited.add( root.getId() );
+        for( ResolvedComponentResult dependency : GradleDepTreeLoader.selectedDependenciesOf( root ) )
+        {
+            collectEdges( dependency, edges, visited );
+        }
+        for( ResolvedComponentResult component : configuration.getIncoming().getResolutionResult().getAllComponents() )
+        {
+            for( ResolvedVariantResult variant : component.getVariants() )
+            {
+                edges.add( component.getId() + " # " + variant.getDisplayName() );
+            }
+        }
+        Hasher hasher = Hashing.sha1().newHasher();
+        for( String edge : edges )
+        {
+            hasher.putString( edge, StandardCharsets.UTF_8 ).putChar( '\n' );
+        }
+        return hasher.hash();
+    }
+
+    private static void collectEdges( ResolvedComponentResult component,
+                                      Set<String> edges,
+                                      Set<ComponentIdentifier> visited )
+    {
+        if( !visited.add( component.getId() ) )
+        {
+            return;
+        }
+        for( ResolvedComponentResult child : GradleDepTreeLoader.selectedDependenciesOf( component ) )
+        {
+            edges.add( component.getId() + " > " + child.getId() );
+            collectEdges( child, edges, visited );
+        }
+    }
+}
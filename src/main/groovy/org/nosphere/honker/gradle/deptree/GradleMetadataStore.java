@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle.deptree;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+
+import org.apache.commons.io.IOUtils;
+
+import org.nosphere.honker.deptree.DepTree;
+import org.nosphere.honker.deptree.DepTreeCodec;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.DepTreeNode;
+import org.nosphere.honker.gradle.HonkerUtils;
+
+/**
+ * Artifacts metadata stored as outputs of cacheable tasks, so that it is shared through the Gradle build cache.
+ * <p>
+ * External artifacts are spread over {@link #BUCKETS} buckets by checksum, each bucket is extracted by its own task
+ * whose cache key is made of the coordinates and checksums of its artifacts and of the {@link #EXTRACTOR_VERSION}.
+ * A dependency change hence only invalidates the bucket of the changed artifact.
+ * <p>
+ * A bucket store is the extractor version followed by a {@link DepTreeCodec} snapshot of a flat tree, one node per
+ * artifact. Stores are read by {@link GradleArtifactLoader} to fill the metadata of artifacts not extracted yet.
+ */
+public final class GradleMetadataStore
+{
+    /**
+     * Version of the extracted metadata, to be increased whenever extraction changes.
+     */
+    public static final int EXTRACTOR_VERSION = 2;
+    public static final int BUCKETS = 16;
+
+    private GradleMetadataStore()
+    {
+    }
+
+    public static File bucketFile( Project project, int bucket )
+    {
+        return new File( project.getBuildDir(), "honker/metadata/bucket-" + bucket + ".bin" );
+    }
+
+    /**
+     * @return {@literal coordinates@checksum} of the external artifacts of the bucket
+     */
+    public static SortedSet<String> keys( Collection<Configuration> configurations, int bucket )
+    {
+        SortedSet<String> keys = new TreeSet<>();
+        for( ExternalArtifact artifact : externalArtifacts( configurations, bucket ) )
+        {
+            keys.add( artifact.coordinates + '@' + artifact.checksum );
+        }
+        return keys;
+    }
+
+    /**
+     * Extract all facets of the external artifacts of the bucket and write them to the given store file.
+     * Artifacts whose POM chain couldn't be resolved are left out, they are extracted again by later builds.
+     *
+     * @return Count of the artifacts left out
+     */
+    public static int extract( Project project, Collection<Configuration> configurations, int bucket, File output )
+        throws IOException
+    {
+        GradleArtifactLoader loader = new GradleArtifactLoader( project, EnumSet.allOf( DepTreeData.Facet.class ) );
+        List<DepTreeNode> nodes = new ArrayList<>();
+        int leftOut = 0;
+        List<ExternalArtifact> externals = externalArtifacts( configurations, bucket );
+        for( ExternalArtifact external : externals )
+        {
+            loader.retainExternalArtifacts( Collections.singleton( external.artifact ) );
+        }
+        for( ExternalArtifact external : externals )
+        {
+            int failures = loader.getPomFailures();
+            DepTreeData.Artifact artifact = loader.loadExternalArtifact( external.moduleVersion, external.artifact );
+            // Not part of any facet, stored so that later builds never look for it again
+            artifact.getEmbeddedPom();
+            if( loader.getPomFailures() == failures )
+            {
+                nodes.add( new DepTreeNode(
+                    new DepTreeData( external.moduleVersion.toString(), Collections.singleton( artifact ) )
+                ) );
+            }
+            else
+            {
+                leftOut++;
+            }
+            loader.releaseExternalArtifact( external.moduleVersion, external.artifact );
+        }
+        loader.report( project.getLogger() );
+        output.getParentFile().mkdirs();
+        DataOutputStream data = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( output ) ) );
+        try
+        {
+            data.writeInt( EXTRACTOR_VERSION );
+            DepTreeCodec.write( new DepTree( nodes ), data );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( data );
+        }
+        return leftOut;
+    }
+
+    /**
+     * Stores written by another extractor version or unreadable are ignored.
+     *
+     * @return Artifacts of all the bucket stores of the project, keyed by checksum
+     */
+    public static Map<String, List<DepTreeData.Artifact>> read( Project project )
+    {
+        Map<String, List<DepTreeData.Artifact>> artifacts = new HashMap<>();
+        for( int bucket = 0; bucket < BUCKETS; bucket++ )
+        {
+            File file = bucketFile( project, bucket );
+            if( !file.isFile() )
+            {
+                continue;
+            }
+            try
+            {
+                DepTree store = read( file );
+                if( store == null )
+                {
+                    continue;
+                }
+                for( DepTreeData node : store.getNodes() )
+                {
+                    for( DepTreeData.Artifact artifact : node.getArtifacts() )
+                    {
+                        List<DepTreeData.Artifact> sameContent = artifacts.get( artifact.getChecksum() );
+                        if( sameContent == null )
+                        {
+                            sameContent = new ArrayList<>( 1 );
+                            artifacts.put( artifact.getChecksum(), sameContent );
+                        }
+                        sameContent.add( artifact );
+                    }
+                }
+            }
+            catch( IOException ex )
+            {
+                project.getLogger().warn( "Ignoring unreadable honker metadata store {}: {}", file, ex.getMessage() );
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * @return The stored flat tree, {@literal null} if written by another extractor version
+     */
+    private static DepTree read( File file )
+        throws IOException
+    {
+        DataInputStream data = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+        try
+        {
+            if( data.readInt() != EXTRACTOR_VERSION )
+            {
+                return null;
+            }
+            return DepTreeCodec.read( data );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( data );
+        }
+    }
+
+    static int bucketOf( String checksum )
+    {
+        return Character.digit( checksum.charAt( checksum.length() - 1 ), 16 ) % BUCKETS;
+    }
+
+    private static List<ExternalArtifact> externalArtifacts( Collection<Configuration> configurations, int bucket )
+    {
+        List<ExternalArtifact> artifacts = new ArrayList<>();
+        Set<File> seen = new HashSet<>();
+        for( Configuration configuration : configurations )
+        {
+            Map<ComponentIdentifier, List<ResolvedArtifactResult>> externals =
+                GradleDepTreeLoader.externalArtifacts( configuration );
+            Set<ResolvedComponentResult> components = configuration.getIncoming().getResolutionResult()
+                                                                   .getAllComponents();
+            for( ResolvedComponentResult component : components )
+            {
+                List<ResolvedArtifactResult> componentArtifacts = externals.get( component.getId() );
+                if( component.getId() instanceof ProjectComponentIdentifier || componentArtifacts == null )
+                {
+                    continue;
+                }
+                for( ResolvedArtifactResult artifact : componentArtifacts )
+                {
+                    File file = artifact.getFile();
+                    if( !seen.add( file ) )
+                    {
+                        continue;
+                    }
+                    String checksum = HonkerUtils.checksumOf( file );
+                    if( bucketOf( checksum ) == bucket )
+                    {
+                        artifacts.add( new ExternalArtifact( component.getModuleVersion(), artifact, checksum ) );
+                    }
+                }
+            }
+        }
+        return artifacts;
+    }
+
+    private static final class ExternalArtifact
+    {
+        private final ModuleVersionIdentifier moduleVersion;
+        private final ResolvedArtifactResult artifact;
+        private final String checksum;
+        private final String coordinates;
+
+        private ExternalArtifact( ModuleVersionIdentifier moduleVersion,
+                                  ResolvedArtifactResult artifact,
+                                  String checksum )
+        {
+            this.moduleVersion = moduleVersion;
+            this.artifact = artifact;
+            this.checksum = checksum;
+            this.coordinates = GradleArtifactLoader.extractCoordinates( moduleVersion, artifact );
+        }
+    }
+}
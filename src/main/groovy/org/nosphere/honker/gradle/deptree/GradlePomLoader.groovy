@@ -19,28 +19,143 @@ import com.google.common.cache.CacheBuilder
 import com.google.common.cache.CacheLoader
 import com.google.common.cache.LoadingCache
 import com.google.common.collect.ImmutableMap
+import com.google.common.hash.Hashing
 import groovy.util.slurpersupport.GPathResult
-import java.util.concurrent.atomic.AtomicLong
+import java.nio.charset.StandardCharsets
 import java.util.zip.ZipEntry
 import java.util.zip.ZipFile
 import org.apache.commons.io.FilenameUtils
 import org.apache.commons.io.IOUtils
 import org.apache.commons.lang.StringUtils
 import org.gradle.api.Project
-import org.gradle.api.artifacts.Configuration
-import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.dsl.DependencyHandler
+import org.gradle.api.artifacts.repositories.ArtifactRepository
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository
+import org.gradle.api.artifacts.result.ArtifactResolutionResult
+import org.gradle.api.artifacts.result.ArtifactResult
+import org.gradle.api.artifacts.result.ComponentArtifactsResult
+import org.gradle.api.artifacts.result.ComponentResult
+import org.gradle.api.artifacts.result.ResolvedArtifactResult
+import org.gradle.api.artifacts.result.UnresolvedArtifactResult
+import org.gradle.api.artifacts.result.UnresolvedComponentResult
+import org.gradle.api.logging.Logger
+import org.gradle.maven.MavenModule
+import org.gradle.maven.MavenPomArtifact
 import org.nosphere.honker.deptree.DepTreeData
 import org.nosphere.honker.deptree.DepTreeData.Pom
 import org.nosphere.honker.deptree.DepTreePomLoader
 import org.nosphere.honker.deptree.Gav
+import org.nosphere.honker.gradle.HonkerExtension
+import org.nosphere.honker.gradle.HonkerUtils
 
 class GradlePomLoader implements DepTreePomLoader
 {
-  private final Project project;
+  /**
+   * Simple names of the Gradle failures telling that a module or artifact is missing from all repositories.
+   */
+  private static final Set<String> NOT_FOUND_FAILURES = [
+    'ModuleVersionNotFoundException', 'ArtifactNotFoundException'
+  ] as Set<String>
+
+  private final DependencyHandler dependencies;
+  private final Logger logger;
+  private final UnresolvablePomsCache unresolvablePoms;
+  private final boolean refreshDependencies;
+  private final Set<File> moduleCacheFilesDirs = new LinkedHashSet<>();
+  private int foundInModuleCache;
+  private int resolved;
+  private final Map<String, String> unresolved = new TreeMap<>();
+  private final Set<String> skipped = new TreeSet<>();
+  private int failures;
 
   GradlePomLoader( Project project )
   {
-    this.project = project;
+    this.dependencies = project.dependencies;
+    this.logger = project.logger;
+    def ext = project.extensions.getByType( HonkerExtension )
+    def startParameter = project.gradle.startParameter
+    // Builds resolving from other repositories don't share unresolvable POMs
+    this.unresolvablePoms = new UnresolvablePomsCache(
+      new File(
+        project.gradle.gradleUserHomeDir,
+        "caches/honker/unresolvable-poms-${ repositoriesDigestOf( project ) }.properties"
+      ),
+      ext.unresolvablePomsTtl.toMillis(),
+      startParameter.offline,
+      startParameter.refreshDependencies
+    )
+    this.refreshDependencies = startParameter.refreshDependencies
+    this.moduleCacheFilesDirs.add new File( project.gradle.gradleUserHomeDir, 'caches/modules-2/files-2.1' )
+  }
+
+  /**
+   * @return Digest of the urls of the repositories of the project, or their names when they have none
+   */
+  private static String repositoriesDigestOf( Project project )
+  {
+    def repositories = project.repositories.collect { ArtifactRepository repository ->
+      if( repository instanceof UrlArtifactRepository )
+      {
+        return ( repository as UrlArtifactRepository ).url.toString()
+      }
+      return repository.name
+    }
+    return Hashing.sha1().hashString( repositories.join( '\n' ), StandardCharsets.UTF_8 ).toString().substring( 0, 12 )
+  }
+
+  /**
+   * Only failures telling that the POM doesn't exist in any repository are definitive, network errors and
+   * server failures are transient.
+   */
+  private static boolean isNotFound( Throwable failure )
+  {
+    for( Throwable cause = failure; cause != null; cause = cause.cause == cause ? null : cause.cause )
+    {
+      if( cause.class.simpleName in NOT_FOUND_FAILURES )
+      {
+        return true
+      }
+    }
+    return false
+  }
+
+  /**
+   * Warn once about all the POMs that couldn't be resolved so far and persist the unresolvable POMs cache.
+   */
+  void reportFailures( Logger logger )
+  {
+    if( foundInModuleCache + resolved > 0 )
+    {
+      logger.info "Honker POMs: $foundInModuleCache found in the Gradle module cache, $resolved resolved"
+      foundInModuleCache = 0
+      resolved = 0
+    }
+    if( !unresolved.isEmpty() )
+    {
+      logger.warn(
+        "${ unresolved.size() } POM(s) could not be resolved, licensing data from them and their parents is missing:" +
+        unresolved.collect { String coordinates, String reason -> "\n  $coordinates ($reason)" }.join( '' )
+      )
+    }
+    if( !skipped.isEmpty() )
+    {
+      logger.warn(
+        "${ skipped.size() } known unresolvable POM(s) were not retried, " +
+        "licensing data from them and their parents is missing, run with --refresh-dependencies to retry:" +
+        skipped.collect { String coordinates -> "\n  $coordinates" }.join( '' )
+      )
+    }
+    unresolved.clear()
+    skipped.clear()
+    unresolvablePoms.persist()
+  }
+
+  /**
+   * @return Count of POM resolution failures so far, POMs loaded while resolution fails may lack parent data
+   */
+  int getFailures()
+  {
+    return failures;
   }
 
   Pom load( File artifactFile, Gav gav )
@@ -48,6 +163,12 @@ class GradlePomLoader implements DepTreePomLoader
     GPathResult pomXml = slurpPom( artifactFile );
     if( pomXml == null )
     {
+      File filesDir = HonkerUtils.moduleCacheFilesDirOf( artifactFile )
+      if( filesDir != null )
+      {
+        // Artifacts may come from another module cache, e.g. a read-only one
+        moduleCacheFilesDirs.add( filesDir )
+      }
       Map pomGav = [
         "group"  : gav.groupId,
         "name"   : gav.artifactId,
@@ -55,11 +176,11 @@ class GradlePomLoader implements DepTreePomLoader
         "ext"    : "pom"
       ]
 
-      Collection<ResolvedArtifact> artifacts = resolveArtifacts( pomGav )
-      pomXml = artifacts?.inject( pomXml ) { GPathResult memo, ResolvedArtifact resolved ->
+      Collection<File> artifacts = resolveArtifacts( pomGav )
+      pomXml = artifacts?.inject( pomXml ) { GPathResult memo, File resolved ->
         try
         {
-          memo = memo ?: slurpPom( resolved.file )
+          memo = memo ?: slurpPom( resolved )
         }
         catch( Exception ex )
         {
@@ -68,9 +189,44 @@ class GradlePomLoader implements DepTreePomLoader
         return memo
       }
     }
+    if( pomXml == null )
+    {
+      // No POM could be found nor resolved
+      return new DepTreeData.Pom( null, null, null, null, null );
+    }
     return pomData( pomXml );
   }
 
+  /**
+   * Resolve the POM chain of a module ahead of loading its artifacts, resolved POMs and failures are reused then.
+   *
+   * @return Whether the POM chain could be resolved
+   */
+  boolean resolve( Gav gav )
+  {
+    int before = failures
+    Collection<File> poms = resolveArtifacts( [
+      "group"  : gav.groupId,
+      "name"   : gav.artifactId,
+      "version": gav.version,
+      "ext"    : "pom"
+    ] )
+    ( poms as Set ).each { File pom ->
+      pomData( new XmlSlurper().parse( pom ) )
+    }
+    return failures == before
+  }
+
+  Pom loadEmbedded( File artifactFile )
+  {
+    GPathResult pomXml = slurpPom( artifactFile );
+    if( pomXml == null )
+    {
+      return null;
+    }
+    return pomLicenses( pomXml, pomHeader( pomXml ) );
+  }
+
   private GPathResult slurpPom( File fileToSlurp )
   {
     if( "pom.xml" == fileToSlurp.getName() )
@@ -150,6 +306,11 @@ class GradlePomLoader implements DepTreePomLoader
   }
 
   private DepTreeData.Pom pomData( GPathResult pomXml )
+  {
+    return pomData( pomXml, pomHeader( pomXml ) );
+  }
+
+  private DepTreeData.Pom pomHeader( GPathResult pomXml )
   {
     String organization = pomXml.organization?.name?.text()
     String organizationUrl = pomXml.organization?.url?.text()
@@ -160,7 +321,7 @@ class GradlePomLoader implements DepTreePomLoader
     }
     String url = pomXml.url?.text()
     String version = pomXml.version?.text()
-    return pomData( pomXml, new DepTreeData.Pom( organization, organizationUrl, name, version, url ) );
+    return new DepTreeData.Pom( organization, organizationUrl, name, version, url );
   }
 
   private DepTreeData.Pom pomData( GPathResult pomXml, DepTreeData.Pom data )
@@ -178,14 +339,19 @@ class GradlePomLoader implements DepTreePomLoader
         "version": parentContent.version.text(),
         "ext"    : "pom"
       ]
-      Collection<ResolvedArtifact> parentArtifacts = resolveArtifacts( parent )
+      Collection<File> parentArtifacts = resolveArtifacts( parent )
       if( parentArtifacts )
       {
-        ( parentArtifacts*.file as Set ).each { File file ->
+        ( parentArtifacts as Set ).each { File file ->
           data = pomData( new XmlSlurper().parse( file ), data )
         }
       }
     }
+    return pomLicenses( pomXml, data );
+  }
+
+  private DepTreeData.Pom pomLicenses( GPathResult pomXml, DepTreeData.Pom data )
+  {
     pomXml.licenses?.license?.each { GPathResult license ->
       data.addLicense(
         new DepTreeData.PomLicense(
@@ -199,51 +365,120 @@ class GradlePomLoader implements DepTreePomLoader
     return data;
   }
 
-  private Collection<ResolvedArtifact> resolveArtifacts( Map<String, String> gav )
+  private Collection<File> resolveArtifacts( Map<String, String> gav )
   {
+    File cached = findInModuleCache( gav )
+    if( cached != null )
+    {
+      foundInModuleCache++
+      return Collections.singletonList( cached )
+    }
+    String coordinates = "$gav.group:$gav.name:$gav.version"
+    if( unresolved.containsKey( coordinates ) || skipped.contains( coordinates ) )
+    {
+      failures++
+      return Collections.emptyList();
+    }
+    if( unresolvablePoms.isKnownUnresolvable( coordinates ) )
+    {
+      failures++
+      skipped.add( coordinates )
+      return Collections.emptyList();
+    }
     try
     {
       // Get artifacts from cache, first resolving them if necessary
-      return resolvedArtifactCache.getUnchecked( ImmutableMap.copyOf( gav ) );
+      Collection<File> files = resolvedArtifactCache.getUnchecked( ImmutableMap.copyOf( gav ) );
+      resolved++
+      unresolvablePoms.recordResolved( coordinates )
+      return files
     }
     catch( Exception ex )
     {
-      // Unresolved artifacts, will return an empty Collection
-      project.logger.warn( "Unresolveable artifacts spec: $gav", ex )
+      // Unresolved artifacts, will return an empty Collection, reported later
+      failures++
+      Throwable cause = ex.cause ?: ex
+      unresolved.put( coordinates, cause.message ?: cause.class.name )
+      if( isNotFound( cause ) )
+      {
+        unresolvablePoms.recordUnresolvable( coordinates )
+      }
+      logger.debug( "Unresolveable artifacts spec: $gav", ex )
       return Collections.emptyList();
     }
   }
 
-  private static final AtomicLong POM_RESOLVING_CONFIG_COUNT = new AtomicLong();
-
-  private Project theProject() {
-    return project
+  /**
+   * Find a POM already downloaded in the Gradle module cache, stored in
+   * {@literal files-2.1/<group>/<module>/<version>/<sha1>/<module>-<version>.pom}, without any resolution.
+   * <p>
+   * The module cache is bypassed when refreshing dependencies, POMs are then resolved again.
+   *
+   * @return The most recent cached POM, {@literal null} if none
+   */
+  private File findInModuleCache( Map<String, String> gav )
+  {
+    if( refreshDependencies || !gav.group || !gav.name || !gav.version )
+    {
+      return null
+    }
+    String fileName = "${ gav.name }-${ gav.version }.pom"
+    File found = null
+    for( File filesDir : moduleCacheFilesDirs )
+    {
+      File[] shaDirs = new File( filesDir, "$gav.group/$gav.name/$gav.version" ).listFiles()
+      for( File shaDir : shaDirs ?: new File[ 0 ] )
+      {
+        File pom = new File( shaDir, fileName )
+        if( pom.isFile() && ( found == null || pom.lastModified() > found.lastModified() ) )
+        {
+          found = pom
+        }
+      }
+      if( found != null )
+      {
+        return found
+      }
+    }
+    return null
   }
 
-  private final LoadingCache<Map<String, String>, Collection<ResolvedArtifact>> resolvedArtifactCache =
-    CacheBuilder.newBuilder().concurrencyLevel( 1 ).build(
-      new CacheLoader<Map<String, String>, Collection<ResolvedArtifact>>() {
+  /**
+   * Resolve POMs using an artifact resolution query.
+   * <p>
+   * Queries are detached from the project model, they don't create configurations nor add dependencies.
+   * This is safe to do at execution time, concurrently with tasks of other projects.
+   */
+  private final LoadingCache<Map<String, String>, Collection<File>> resolvedArtifactCache =
+    CacheBuilder.newBuilder().build(
+      new CacheLoader<Map<String, String>, Collection<File>>() {
         @Override
-        public Collection<ResolvedArtifact> load( Map<String, String> gav ) throws Exception
+        public Collection<File> load( Map<String, String> gav ) throws Exception
         {
-          String configName = "honkerPomLoader${ POM_RESOLVING_CONFIG_COUNT.getAndIncrement() }";
-          def project = theProject()
-          project.getConfigurations().create( configName );
-          project.getDependencies().add( configName, gav );
-          Configuration config = project.getConfigurations().getByName( configName );
-          Collection<ResolvedArtifact> artifacts = config.getResolvedConfiguration().getResolvedArtifacts();
-          if( artifacts != null )
+          ArtifactResolutionResult result = dependencies.createArtifactResolutionQuery()
+            .forModule( gav.group, gav.name, gav.version )
+            .withArtifacts( MavenModule, MavenPomArtifact )
+            .execute()
+          Collection<File> files = [ ]
+          for( ComponentArtifactsResult component : result.resolvedComponents )
+          {
+            for( ArtifactResult artifact : component.getArtifacts( MavenPomArtifact ) )
+            {
+              if( artifact instanceof UnresolvedArtifactResult )
+              {
+                throw ( (UnresolvedArtifactResult) artifact ).failure
+              }
+              files.add( ( (ResolvedArtifactResult) artifact ).file )
+            }
+          }
+          for( ComponentResult component : result.components )
           {
-            for(
-              ResolvedArtifact artifact :
-                artifacts )
+            if( component instanceof UnresolvedComponentResult )
             {
-              // Download! This will throw exceptions eagerly!
-              artifact.getFile();
+              throw ( (UnresolvedComponentResult) component ).failure
             }
-            return artifacts;
           }
-          return Collections.emptyList();
+          return files;
         }
       }
     );
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.gradle.deptree;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Persistent negative cache of unresolvable POM coordinates, shared by the builds using the same Gradle user home and
+ * the same repositories.
+ * <p>
+ * Only POMs missing from all repositories are recorded, transient failures such as network errors are retried.
+ * Coordinates are not retried until their entry expires.
+ * In offline mode, entries never expire and new failures are not recorded, they are no evidence of unresolvability.
+ * When refreshing dependencies, entries are ignored and all coordinates are retried.
+ */
+final class UnresolvablePomsCache
+{
+    private static final Object LOCK = new Object();
+
+    private final File file;
+    private final long ttlMillis;
+    private final boolean offline;
+    private final boolean refresh;
+    private Map<String, Long> entries;
+    private final Map<String, Long> recorded = new HashMap<>();
+    private final Set<String> resolved = new HashSet<>();
+
+    UnresolvablePomsCache( File file, long ttlMillis, boolean offline, boolean refresh )
+    {
+        this.file = file;
+        this.ttlMillis = ttlMillis;
+        this.offline = offline;
+        this.refresh = refresh;
+    }
+
+    boolean isKnownUnresolvable( String coordinates )
+    {
+        if( refresh )
+        {
+            return false;
+        }
+        Long failedAt = entries().get( coordinates );
+        return failedAt != null && ( offline || System.currentTimeMillis() - failedAt < ttlMillis );
+    }
+
+    void recordUnresolvable( String coordinates )
+    {
+        if( !offline )
+        {
+            recorded.put( coordinates, System.currentTimeMillis() );
+        }
+    }
+
+    void recordResolved( String coordinates )
+    {
+        if( entries().containsKey( coordinates ) )
+        {
+            resolved.add( coordinates );
+        }
+    }
+
+    /**
+     * Merge the entries recorded by this build into the cache file, dropping expired and resolved entries.
+     */
+    void persist()
+    {
+        if( recorded.isEmpty() && resolved.isEmpty() )
+        {
+            return;
+        }
+        synchronized( LOCK )
+        {
+            Map<String, Long> merged = read( file );
+            merged.putAll( recorded );
+            merged.keySet().removeAll( resolved );
+            long now = System.currentTimeMillis();
+            Properties properties = new Properties();
+            for( Map.Entry<String, Long> entry : merged.entrySet() )
+            {
+                if( now - entry.getValue() < ttlMillis )
+                {
+                    properties.setProperty( entry.getKey(), String.valueOf( entry.getValue() ) );
+                }
+            }
+            OutputStream output = null;
+            try
+            {
+                file.getParentFile().mkdirs();
+                File temp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+                output = new FileOutputStream( temp );
+                properties.store( output, "Unresolvable POMs, coordinates to failure timestamp" );
+                output.close();
+                Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch( IOException ex )
+            {
+                throw new RuntimeException( ex.getMessage(), ex );
+            }
+            finally
+            {
+                IOUtils.closeQuietly( output );
+            }
+            recorded.clear();
+            resolved.clear();
+        }
+    }
+
+    private Map<String, Long> entries()
+    {
+        if( entries == null )
+        {
+            synchronized( LOCK )
+            {
+                entries = read( file );
+            }
+        }
+        return entries;
+    }
+
+    private static Map<String, Long> read( File file )
+    {
+        Map<String, Long> entries = new HashMap<>();
+        if( !file.isFile() )
+        {
+            return entries;
+        }
+        InputStream input = null;
+        try
+        {
+            input = new FileInputStream( file );
+            Properties properties = new Properties();
+            properties.load( input );
+            for( String coordinates : properties.stringPropertyNames() )
+            {
+                try
+                {
+                    entries.put( coordinates, Long.parseLong( properties.getProperty( coordinates ) ) );
+                }
+                catch( NumberFormatException ignored )
+                {
+                    // Ignored, corrupted entry
+                }
+            }
+            return entries;
+        }
+        catch( IOException ex )
+        {
+            throw new RuntimeException( ex.getMessage(), ex );
+        }
+        finally
+        {
+            IOUtils.closeQuietly( input );
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import java.util.Set;
+
+import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeData;
+
+/**
+ * Coordinates and detected licenses of an artifact, without any of its other metadata.
+ */
+public final class ArtifactLicenses
+{
+    private final String coordinates;
+    private final String identity;
+    private final Set<License> detectedLicenses;
+
+    public ArtifactLicenses( DepTreeData.Artifact artifact )
+    {
+        this.coordinates = artifact.getCoordinates();
+        this.identity = artifact.getIdentity();
+        this.detectedLicenses = artifact.getDetectedLicenses();
+    }
+
+    public String getCoordinates()
+    {
+        return coordinates;
+    }
+
+    public Set<License> getDetectedLicenses()
+    {
+        return detectedLicenses;
+    }
+
+    @Override
+    public String toString()
+    {
+        return coordinates + " " + detectedLicenses;
+    }
+
+    /**
+     * Same identity as the artifact, see {@link DepTreeData.Artifact#getIdentity()}.
+     */
+    @Override
+    public int hashCode()
+    {
+        return identity.hashCode();
+    }
+
+    @Override
+    public boolean equals( Object obj )
+    {
+        if( obj == this )
+        {
+            return true;
+        }
+        if( obj == null )
+        {
+            return false;
+        }
+        if( getClass() != obj.getClass() )
+        {
+            return false;
+        }
+        return identity.equals( ( (ArtifactLicenses) obj ).identity );
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.nosphere.honker.deptree.DepTreeNode;
+import org.nosphere.honker.deptree.DepTreeVisitor;
+
+/**
+ * Visits the dependency tree with several visitors in a single pass, e.g. while it is streamed.
+ * <p>
+ * Children of a node are visited unless one of the visitors skips them.
+ */
+public class CompositeVisitor
+    implements DepTreeVisitor
+{
+    private final List<DepTreeVisitor> visitors;
+
+    public CompositeVisitor( DepTreeVisitor... visitors )
+    {
+        this.visitors = Arrays.asList( visitors );
+    }
+
+    @Override
+    public boolean visitEnter( DepTreeNode node )
+    {
+        boolean proceed = true;
+        for( DepTreeVisitor visitor : visitors )
+        {
+            proceed &= visitor.visitEnter( node );
+        }
+        return proceed;
+    }
+
+    @Override
+    public boolean visitExit( DepTreeNode node )
+    {
+        boolean proceed = true;
+        for( DepTreeVisitor visitor : visitors )
+        {
+            proceed &= visitor.visitExit( node );
+        }
+        return proceed;
+    }
+}
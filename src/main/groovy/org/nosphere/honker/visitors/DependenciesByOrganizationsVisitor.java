@@ -15,21 +15,39 @@
  */
 package org.nosphere.honker.visitors;
 
+import java.util.EnumSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 
+import org.nosphere.honker.deptree.DepTreeCollector;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreeVisitor;
 
 /**
  * Dependencies Visitor.
  */
 public class DependenciesByOrganizationsVisitor
-    implements DepTreeVisitor
+    extends VisitorCollector<DependenciesByOrganizationsVisitor, Map<String, Set<DepTreeData.Artifact>>>
 {
+    public static DepTreeCollector<DependenciesByOrganizationsVisitor, Map<String, Set<DepTreeData.Artifact>>> collector()
+    {
+        return new Adapter<DependenciesByOrganizationsVisitor, Map<String, Set<DepTreeData.Artifact>>>()
+        {
+            @Override
+            public DependenciesByOrganizationsVisitor supply()
+            {
+                return new DependenciesByOrganizationsVisitor();
+            }
+
+            @Override
+            public Set<DepTreeData.Facet> getFacets()
+            {
+                return EnumSet.of( DepTreeData.Facet.ATTRIBUTION );
+            }
+        };
+    }
+
     private final Map<String, Set<DepTreeData.Artifact>> dependenciesByOrganizations = new TreeMap<>(
         String.CASE_INSENSITIVE_ORDER
     );
@@ -40,23 +58,35 @@ public class DependenciesByOrganizationsVisitor
     }
 
     @Override
-    public boolean visitEnter( DepTreeNode node )
+    protected void collect( DepTreeData data )
     {
-        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
         {
-            String org = artifact.getOrganization();
-            if( !dependenciesByOrganizations.containsKey( org ) )
-            {
-                dependenciesByOrganizations.put( org, new LinkedHashSet<DepTreeData.Artifact>() );
-            }
-            dependenciesByOrganizations.get( org ).add( artifact );
+            artifactsOf( artifact.getOrganization() ).add( artifact );
         }
-        return true;
     }
 
     @Override
-    public boolean visitExit( DepTreeNode node )
+    protected void merge( DependenciesByOrganizationsVisitor other )
     {
-        return true;
+        for( Map.Entry<String, Set<DepTreeData.Artifact>> entry : other.dependenciesByOrganizations.entrySet() )
+        {
+            artifactsOf( entry.getKey() ).addAll( entry.getValue() );
+        }
+    }
+
+    @Override
+    protected Map<String, Set<DepTreeData.Artifact>> result()
+    {
+        return dependenciesByOrganizations;
+    }
+
+    private Set<DepTreeData.Artifact> artifactsOf( String org )
+    {
+        if( !dependenciesByOrganizations.containsKey( org ) )
+        {
+            dependenciesByOrganizations.put( org, new LinkedHashSet<DepTreeData.Artifact>() );
+        }
+        return dependenciesByOrganizations.get( org );
     }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.DepTreeNode;
+import org.nosphere.honker.deptree.DepTreeVisitor;
+
+/**
+ * Stops at the first artifact without license or whose licenses all conflict with the reference license.
+ * <p>
+ * Artifacts are evaluated by order of cheapest evidence: while visiting, only overrides, the license database, the
+ * embedded POM and the manifest are consulted, see {@link DepTreeData.Artifact#detectLicensesWithoutResolution()}.
+ * Artifacts whose licenses can only be detected by resolving POMs are deferred to {@link #checkDeferred()}.
+ */
+public class FailFastLicenseVisitor
+    implements DepTreeVisitor
+{
+    private final License referenceLicense;
+    private final Set<DepTreeData.Artifact> deferred = new LinkedHashSet<>();
+    private ArtifactLicenses violation;
+
+    /**
+     * @param referenceLicense License to check conflicts with, {@literal null} to only check the presence of licenses
+     */
+    public FailFastLicenseVisitor( License referenceLicense )
+    {
+        this.referenceLicense = referenceLicense;
+    }
+
+    /**
+     * @return The first offending artifact, {@literal null} if none was found
+     */
+    public ArtifactLicenses getViolation()
+    {
+        return violation;
+    }
+
+    public int getDeferredCount()
+    {
+        return deferred.size();
+    }
+
+    @Override
+    public boolean visitEnter( DepTreeNode node )
+    {
+        if( violation != null )
+        {
+            return false;
+        }
+        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        {
+            if( !artifact.detectLicensesWithoutResolution() )
+            {
+                deferred.add( artifact );
+            }
+            else if( check( artifact ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean visitExit( DepTreeNode node )
+    {
+        return violation == null;
+    }
+
+    /**
+     * Detect the licenses of the deferred artifacts, resolving their POMs, until the first offending one.
+     *
+     * @return The first offending artifact, {@literal null} if none was found
+     */
+    public ArtifactLicenses checkDeferred()
+    {
+        for( DepTreeData.Artifact artifact : deferred )
+        {
+            if( violation != null || check( artifact ) )
+            {
+                break;
+            }
+        }
+        deferred.clear();
+        return violation;
+    }
+
+    /**
+     * @return {@literal true} if the artifact has no license or conflicts, it is then recorded as the violation
+     */
+    private boolean check( DepTreeData.Artifact artifact )
+    {
+        Set<License> licenses = artifact.getDetectedLicenses();
+        if( licenses.isEmpty() || ( referenceLicense != null && allConflict( licenses ) ) )
+        {
+            violation = new ArtifactLicenses( artifact );
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link LicenseConflictVisitor}, all licenses must conflict.
+     */
+    private boolean allConflict( Set<License> licenses )
+    {
+        for( License license : licenses )
+        {
+            if( !license.conflictWith( referenceLicense ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Texts grouped by their normalized content, each text is kept once with the coordinates of the artifacts it
+ * comes from.
+ * <p>
+ * Texts are normalized by collapsing whitespace, so that texts differing only in line endings, indentation or
+ * wrapping end up in the same group.
+ */
+public final class GroupedTexts
+{
+    private final Map<String, Group> groups = new LinkedHashMap<>();
+
+    public void add( String text, String coordinates )
+    {
+        String normalized = text.trim().replaceAll( "\\s+", " " );
+        if( normalized.isEmpty() )
+        {
+            return;
+        }
+        String digest = Hashing.sha1().hashString( normalized, StandardCharsets.UTF_8 ).toString();
+        Group group = groups.get( digest );
+        if( group == null )
+        {
+            group = new Group( text.trim() );
+            groups.put( digest, group );
+        }
+        group.coordinates.add( coordinates );
+    }
+
+    public void addAll( GroupedTexts other )
+    {
+        for( Map.Entry<String, Group> entry : other.groups.entrySet() )
+        {
+            Group group = groups.get( entry.getKey() );
+            if( group == null )
+            {
+                group = new Group( entry.getValue().text );
+                groups.put( entry.getKey(), group );
+            }
+            group.coordinates.addAll( entry.getValue().coordinates );
+        }
+    }
+
+    public boolean isEmpty()
+    {
+        return groups.isEmpty();
+    }
+
+    /**
+     * @return Groups, ordered by the first coordinates they cover so that output is reproducible
+     */
+    public List<Group> getGroups()
+    {
+        List<Group> sorted = new ArrayList<>( groups.values() );
+        Collections.sort( sorted, new Comparator<Group>()
+        {
+            @Override
+            public int compare( Group left, Group right )
+            {
+                return left.coordinates.first().compareTo( right.coordinates.first() );
+            }
+        } );
+        return sorted;
+    }
+
+    public static final class Group
+    {
+        private final String text;
+        private final SortedSet<String> coordinates = new TreeSet<>();
+
+        private Group( String text )
+        {
+            this.text = text;
+        }
+
+        /**
+         * @return The first text seen among the identical ones
+         */
+        public String getText()
+        {
+            return text;
+        }
+
+        public SortedSet<String> getCoordinates()
+        {
+            return Collections.unmodifiableSortedSet( coordinates );
+        }
+    }
+}
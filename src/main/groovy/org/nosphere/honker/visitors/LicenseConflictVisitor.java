@@ -19,14 +19,30 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeCollector;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreeVisitor;
 
+/**
+ * Keeps only the coordinates and licenses of matching artifacts, see {@link ArtifactLicenses}.
+ */
 public class LicenseConflictVisitor
-    implements DepTreeVisitor
+    extends VisitorCollector<LicenseConflictVisitor, Set<ArtifactLicenses>>
 {
-    private final Set<DepTreeData.Artifact> conflicts = new LinkedHashSet<>();
+    public static DepTreeCollector<LicenseConflictVisitor, Set<ArtifactLicenses>> collector(
+        final License referenceLicense
+    )
+    {
+        return new Adapter<LicenseConflictVisitor, Set<ArtifactLicenses>>()
+        {
+            @Override
+            public LicenseConflictVisitor supply()
+            {
+                return new LicenseConflictVisitor( referenceLicense );
+            }
+        };
+    }
+
+    private final Set<ArtifactLicenses> conflicts = new LinkedHashSet<>();
     private final License referenceLicense;
 
     public LicenseConflictVisitor( License referenceLicense )
@@ -34,15 +50,15 @@ public class LicenseConflictVisitor
         this.referenceLicense = referenceLicense;
     }
 
-    public Set<DepTreeData.Artifact> conflicts()
+    public Set<ArtifactLicenses> conflicts()
     {
         return conflicts;
     }
 
     @Override
-    public boolean visitEnter( DepTreeNode node )
+    protected void collect( DepTreeData data )
     {
-        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
         {
             if( !artifact.getDetectedLicenses().isEmpty() )
             {
@@ -56,16 +72,21 @@ public class LicenseConflictVisitor
                 }
                 if( conflictsCount == artifact.getDetectedLicenses().size() )
                 {
-                    conflicts.add( artifact );
+                    conflicts.add( new ArtifactLicenses( artifact ) );
                 }
             }
         }
-        return true;
     }
 
     @Override
-    public boolean visitExit( DepTreeNode node )
+    protected void merge( LicenseConflictVisitor other )
+    {
+        conflicts.addAll( other.conflicts );
+    }
+
+    @Override
+    protected Set<ArtifactLicenses> result()
     {
-        return true;
+        return conflicts;
     }
 }
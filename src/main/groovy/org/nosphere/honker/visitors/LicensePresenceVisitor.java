@@ -18,36 +18,55 @@ package org.nosphere.honker.visitors;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
+import org.nosphere.honker.deptree.DepTreeCollector;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreeVisitor;
 
+/**
+ * Keeps only the coordinates and licenses of matching artifacts, see {@link ArtifactLicenses}.
+ */
 public class LicensePresenceVisitor
-    implements DepTreeVisitor
+    extends VisitorCollector<LicensePresenceVisitor, Set<ArtifactLicenses>>
 {
-    private final Set<DepTreeData.Artifact> artifactsWithoutLicense = new LinkedHashSet<>();
+    public static DepTreeCollector<LicensePresenceVisitor, Set<ArtifactLicenses>> collector()
+    {
+        return new Adapter<LicensePresenceVisitor, Set<ArtifactLicenses>>()
+        {
+            @Override
+            public LicensePresenceVisitor supply()
+            {
+                return new LicensePresenceVisitor();
+            }
+        };
+    }
 
-    public Set<DepTreeData.Artifact> artifactsWithoutLicense()
+    private final Set<ArtifactLicenses> artifactsWithoutLicense = new LinkedHashSet<>();
+
+    public Set<ArtifactLicenses> artifactsWithoutLicense()
     {
         return artifactsWithoutLicense;
     }
 
     @Override
-    public boolean visitEnter( DepTreeNode node )
+    protected void collect( DepTreeData data )
     {
-        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
         {
             if( artifact.getDetectedLicenses().isEmpty() )
             {
-                artifactsWithoutLicense.add( artifact );
+                artifactsWithoutLicense.add( new ArtifactLicenses( artifact ) );
             }
         }
-        return true;
     }
 
     @Override
-    public boolean visitExit( DepTreeNode node )
+    protected void merge( LicensePresenceVisitor other )
+    {
+        artifactsWithoutLicense.addAll( other.artifactsWithoutLicense );
+    }
+
+    @Override
+    protected Set<ArtifactLicenses> result()
     {
-        return true;
+        return artifactsWithoutLicense;
     }
 }
@@ -15,29 +15,19 @@
  */
 package org.nosphere.honker.visitors;
 
-import org.apache.commons.lang.StringUtils;
-
-import org.nosphere.honker.deptree.DepTreeNode;
 import org.nosphere.honker.deptree.DepTreeVisitor;
 
+/**
+ * Used to print every visited node on the console, it now only delegates to the given visitors.
+ *
+ * @deprecated The {@literal honkerReport} task writes a navigable report instead, use {@link CompositeVisitor}
+ */
+@Deprecated
 public class LicensingReportVisitor
-    implements DepTreeVisitor
+    extends CompositeVisitor
 {
-    int indent = 0;
-
-    @Override
-    public boolean visitEnter( DepTreeNode node )
-    {
-        System.out.println( StringUtils.repeat( " ", indent * 2 ) + "Visit Enter >> " + node );
-        indent++;
-        return true;
-    }
-
-    @Override
-    public boolean visitExit( DepTreeNode node )
+    public LicensingReportVisitor( DepTreeVisitor... visitors )
     {
-        indent--;
-        // System.out.println( StringUtils.repeat( " ", indent * 2 ) + "Visit Exit  << " + node );
-        return true;
+        super( visitors );
     }
 }
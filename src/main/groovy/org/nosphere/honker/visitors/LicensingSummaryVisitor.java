@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import org.nosphere.honker.deptree.DepTreeCollector;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.LicensingSummary;
+
+/**
+ * Summarize the detected licenses of the visited artifacts.
+ * <p>
+ * Licenses of artifacts found in the baseline summary with the same checksum are taken from it, only new or
+ * changed artifacts, and artifacts with a license override, are scanned.
+ */
+public class LicensingSummaryVisitor
+    extends VisitorCollector<LicensingSummaryVisitor, LicensingSummary>
+{
+    public static DepTreeCollector<LicensingSummaryVisitor, LicensingSummary> collector(
+        final LicensingSummary baseline
+    )
+    {
+        return new Adapter<LicensingSummaryVisitor, LicensingSummary>()
+        {
+            @Override
+            public LicensingSummaryVisitor supply()
+            {
+                return new LicensingSummaryVisitor( baseline );
+            }
+        };
+    }
+
+    private final LicensingSummary baseline;
+    private final LicensingSummary summary = new LicensingSummary();
+    private int scanned;
+
+    /**
+     * @param baseline Summary to take the licenses of unchanged artifacts from, {@literal null} if none
+     */
+    public LicensingSummaryVisitor( LicensingSummary baseline )
+    {
+        this.baseline = baseline;
+    }
+
+    public LicensingSummary getSummary()
+    {
+        return summary;
+    }
+
+    /**
+     * @return Count of the artifacts whose licenses were not taken from the baseline
+     */
+    public int getScanned()
+    {
+        return scanned;
+    }
+
+    @Override
+    protected void collect( DepTreeData data )
+    {
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
+        {
+            String coordinates = artifact.getCoordinates();
+            String checksum = artifact.getChecksum();
+            LicensingSummary.Entry known = baseline == null ? null : baseline.get( coordinates );
+            if( known != null && checksum != null && checksum.equals( known.getChecksum() )
+                && artifact.getOverridenLicense() == null )
+            {
+                summary.put( coordinates, checksum, known.getLicenses() );
+            }
+            else
+            {
+                summary.put( coordinates, checksum, artifact.getDetectedLicenses() );
+                scanned++;
+            }
+        }
+    }
+
+    @Override
+    protected void merge( LicensingSummaryVisitor other )
+    {
+        summary.putAll( other.summary );
+        scanned += other.scanned;
+    }
+
+    @Override
+    protected LicensingSummary result()
+    {
+        return summary;
+    }
+}
@@ -19,13 +19,26 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeCollector;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreeVisitor;
 
 public class MentionsInLicenseVisitor
-    implements DepTreeVisitor
+    extends VisitorCollector<MentionsInLicenseVisitor, Set<DepTreeData.Artifact>>
 {
+    public static DepTreeCollector<MentionsInLicenseVisitor, Set<DepTreeData.Artifact>> collector(
+        final License referenceLicense
+    )
+    {
+        return new Adapter<MentionsInLicenseVisitor, Set<DepTreeData.Artifact>>()
+        {
+            @Override
+            public MentionsInLicenseVisitor supply()
+            {
+                return new MentionsInLicenseVisitor( referenceLicense );
+            }
+        };
+    }
+
     private final Set<DepTreeData.Artifact> mentionInLicenseArtifacts = new LinkedHashSet<>();
     private final License referenceLicense;
 
@@ -40,25 +53,38 @@ public class MentionsInLicenseVisitor
     }
 
     @Override
-    public boolean visitEnter( DepTreeNode node )
+    protected void collect( DepTreeData data )
+    {
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
+        {
+            if( needsMention( artifact, referenceLicense ) )
+            {
+                mentionInLicenseArtifacts.add( artifact );
+            }
+        }
+    }
+
+    static boolean needsMention( DepTreeData.Artifact artifact, License referenceLicense )
     {
-        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        for( License lic : artifact.getDetectedLicenses() )
         {
-            for( License lic : artifact.getDetectedLicenses() )
+            if( lic.needMentionInLicenseFor( referenceLicense ) )
             {
-                if( lic.needMentionInLicenseFor( referenceLicense ) )
-                {
-                    mentionInLicenseArtifacts.add( artifact );
-                    break;
-                }
+                return true;
             }
         }
-        return true;
+        return false;
     }
 
     @Override
-    public boolean visitExit( DepTreeNode node )
+    protected void merge( MentionsInLicenseVisitor other )
     {
-        return true;
+        mentionInLicenseArtifacts.addAll( other.mentionInLicenseArtifacts );
+    }
+
+    @Override
+    protected Set<DepTreeData.Artifact> result()
+    {
+        return mentionInLicenseArtifacts;
     }
 }
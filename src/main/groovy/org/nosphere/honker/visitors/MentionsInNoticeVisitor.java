@@ -19,13 +19,26 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeCollector;
 import org.nosphere.honker.deptree.DepTreeData;
-import org.nosphere.honker.deptree.DepTreeNode;
-import org.nosphere.honker.deptree.DepTreeVisitor;
 
 public class MentionsInNoticeVisitor
-    implements DepTreeVisitor
+    extends VisitorCollector<MentionsInNoticeVisitor, Set<DepTreeData.Artifact>>
 {
+    public static DepTreeCollector<MentionsInNoticeVisitor, Set<DepTreeData.Artifact>> collector(
+        final License referenceLicense
+    )
+    {
+        return new Adapter<MentionsInNoticeVisitor, Set<DepTreeData.Artifact>>()
+        {
+            @Override
+            public MentionsInNoticeVisitor supply()
+            {
+                return new MentionsInNoticeVisitor( referenceLicense );
+            }
+        };
+    }
+
     private final Set<DepTreeData.Artifact> mentionInNoticeArtifacts = new LinkedHashSet<>();
     private final License referenceLicense;
 
@@ -40,25 +53,38 @@ public class MentionsInNoticeVisitor
     }
 
     @Override
-    public boolean visitEnter( DepTreeNode node )
+    protected void collect( DepTreeData data )
+    {
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
+        {
+            if( needsMention( artifact, referenceLicense ) )
+            {
+                mentionInNoticeArtifacts.add( artifact );
+            }
+        }
+    }
+
+    static boolean needsMention( DepTreeData.Artifact artifact, License referenceLicense )
     {
-        for( DepTreeData.Artifact artifact : node.getData().getArtifacts() )
+        for( License lic : artifact.getDetectedLicenses() )
         {
-            for( License lic : artifact.getDetectedLicenses() )
+            if( lic.needMentionInNoticeFor( referenceLicense ) )
             {
-                if( lic.needMentionInNoticeFor( referenceLicense ) )
-                {
-                    mentionInNoticeArtifacts.add( artifact );
-                    break;
-                }
+                return true;
             }
         }
-        return true;
+        return false;
     }
 
     @Override
-    public boolean visitExit( DepTreeNode node )
+    protected void merge( MentionsInNoticeVisitor other )
     {
-        return true;
+        mentionInNoticeArtifacts.addAll( other.mentionInNoticeArtifacts );
+    }
+
+    @Override
+    protected Set<DepTreeData.Artifact> result()
+    {
+        return mentionInNoticeArtifacts;
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import org.nosphere.honker.License;
+import org.nosphere.honker.deptree.DepTreeCollector;
+import org.nosphere.honker.deptree.DepTreeData;
+
+/**
+ * Collects the NOTICE and LICENSE texts of the artifacts that need a mention, see {@link MentionsInNoticeVisitor}
+ * and {@link MentionsInLicenseVisitor}, grouped by normalized content.
+ * <p>
+ * Only the texts are kept, artifacts can be released once visited. Artifacts that need a mention in LICENSE but
+ * don't carry any license file are listed under the name and url of their detected license.
+ */
+public class ThirdPartyTextsVisitor
+    extends VisitorCollector<ThirdPartyTextsVisitor, ThirdPartyTextsVisitor>
+{
+    public static DepTreeCollector<ThirdPartyTextsVisitor, ThirdPartyTextsVisitor> collector(
+        final License referenceLicense
+    )
+    {
+        return new Adapter<ThirdPartyTextsVisitor, ThirdPartyTextsVisitor>()
+        {
+            @Override
+            public ThirdPartyTextsVisitor supply()
+            {
+                return new ThirdPartyTextsVisitor( referenceLicense );
+            }
+        };
+    }
+
+    private final License referenceLicense;
+    private final GroupedTexts notices = new GroupedTexts();
+    private final GroupedTexts licenses = new GroupedTexts();
+
+    public ThirdPartyTextsVisitor( License referenceLicense )
+    {
+        this.referenceLicense = referenceLicense;
+    }
+
+    public GroupedTexts getNotices()
+    {
+        return notices;
+    }
+
+    public GroupedTexts getLicenses()
+    {
+        return licenses;
+    }
+
+    @Override
+    protected void collect( DepTreeData data )
+    {
+        for( DepTreeData.Artifact artifact : data.getArtifacts() )
+        {
+            boolean inNotice = MentionsInNoticeVisitor.needsMention( artifact, referenceLicense );
+            boolean inLicense = MentionsInLicenseVisitor.needsMention( artifact, referenceLicense );
+            if( !inNotice && !inLicense )
+            {
+                continue;
+            }
+            boolean licenseFound = false;
+            for( DepTreeData.SomeFile file : artifact.getLicenseFiles() )
+            {
+                if( "notice".equals( file.getName() ) )
+                {
+                    if( inNotice )
+                    {
+                        notices.add( file.getContent(), artifact.getCoordinates() );
+                    }
+                }
+                else if( inLicense )
+                {
+                    licenses.add( file.getContent(), artifact.getCoordinates() );
+                    licenseFound = true;
+                }
+            }
+            if( inLicense && !licenseFound )
+            {
+                for( License license : artifact.getDetectedLicenses() )
+                {
+                    licenses.add( license.getPreferedName() + " - " + license.getPreferedUrl(),
+                                  artifact.getCoordinates() );
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void merge( ThirdPartyTextsVisitor other )
+    {
+        notices.addAll( other.notices );
+        licenses.addAll( other.licenses );
+    }
+
+    @Override
+    protected ThirdPartyTextsVisitor result()
+    {
+        return this;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015 the original author or authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nosphere.honker.visitors;
+
+import org.nosphere.honker.deptree.DepTreeCollector;
+import org.nosphere.honker.deptree.DepTreeData;
+import org.nosphere.honker.deptree.DepTreeNode;
+import org.nosphere.honker.deptree.DepTreeVisitor;
+
+/**
+ * Visitors whose instances can also be used as {@link DepTreeCollector} containers.
+ * <p>
+ * Visiting a node collects its data, instances accumulating consecutive partitions of the nodes are merged in order.
+ *
+ * @param <V> Concrete visitor type
+ * @param <R> Result
+ */
+public abstract class VisitorCollector<V extends VisitorCollector<V, R>, R>
+    implements DepTreeVisitor
+{
+    protected abstract void collect( DepTreeData data );
+
+    /**
+     * Merge the data collected by another instance, from nodes following the ones collected by this instance.
+     */
+    protected abstract void merge( V other );
+
+    protected abstract R result();
+
+    @Override
+    public boolean visitEnter( DepTreeNode node )
+    {
+        collect( node.getData() );
+        return true;
+    }
+
+    @Override
+    public boolean visitExit( DepTreeNode node )
+    {
+        return true;
+    }
+
+    /**
+     * Adapts a visitor type to the collector contract, only the supply of new instances is left to implement.
+     */
+    protected abstract static class Adapter<V extends VisitorCollector<V, R>, R>
+        implements DepTreeCollector<V, R>
+    {
+        @Override
+        public void accumulate( V container, DepTreeData data )
+        {
+            container.collect( data );
+        }
+
+        @Override
+        public V combine( V left, V right )
+        {
+            left.merge( right );
+            return left;
+        }
+
+        @Override
+        public R finish( V container )
+        {
+            return container.result();
+        }
+    }
+}
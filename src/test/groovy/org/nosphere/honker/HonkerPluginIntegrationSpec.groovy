@@ -18,10 +18,13 @@
  */
 package org.nosphere.honker
 
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
 import org.gradle.testkit.runner.BuildResult
 import spock.lang.Unroll
 
 import static org.gradle.testkit.runner.TaskOutcome.FAILED
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
 
 /**
@@ -80,6 +83,49 @@ class HonkerPluginIntegrationSpec extends AbstractIntegrationSpec {
 
         then:
         result.task(':honkerReport').outcome == SUCCESS
+        result.output.contains 'Honker report: '
+        !result.output.contains('Visit Enter >> ')
+        def report = reportData()
+        report.configuration == 'runtimeClasspath'
+        report.modules.find { it.id == 'junit:junit:4.12' }.artifacts[0].licenses == ['Eclipse Public License (EPL)']
+        report.edges['junit:junit:4.12'] == ['org.hamcrest:hamcrest-core:1.3']
+        fileExists 'build/reports/honker/report/index.html'
+        !fileExists('build/reports/honker/report/report.json')
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'shares extracted metadata across builds (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        runTasksSuccessfully 'honkerReport'
+        BuildResult result = runTasksSuccessfully 'honkerReport', '--rerun-tasks', '--info'
+
+        then:
+        result.task(':honkerReport').outcome == SUCCESS
+        result.output =~ /Honker metadata cache: [1-9]\d* hit\(s\), 0 miss\(es\)/
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'reads POMs from the module cache (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerReport', '--info'
+
+        then:
+        result.task(':honkerReport').outcome == SUCCESS
+        result.output.find( /Honker POMs: [1-9]\d* found in the Gradle module cache/ )
 
         where:
         testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
@@ -100,6 +146,125 @@ class HonkerPluginIntegrationSpec extends AbstractIntegrationSpec {
         result.output.contains 'License check failures: 2'
         result.output.contains 'mysql:mysql-connector-java:5.1.35:jar GNU General Public License conflicts with The Apache Software License, Version 2.0'
         result.output.contains 'asm:asm:3.1:jar no licensing data could be found'
+        result.output.contains 'Dependency paths:'
+        result.output.contains 'mysql:mysql-connector-java:5.1.35 (first level)'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerCheck fail-fast stops at the first failure (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksWithFailure 'honkerCheck', '--fail-fast'
+
+        then:
+        result.task(':honkerCheck').outcome == FAILED
+        result.output.contains 'License check stopped at the first failure:'
+        result.output.contains 'mysql:mysql-connector-java:5.1.35:jar GNU General Public License conflicts with The Apache Software License, Version 2.0'
+        !result.output.contains( 'asm:asm:3.1:jar no licensing data could be found' )
+        result.output.contains 'mysql:mysql-connector-java:5.1.35 (first level)'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'sharded honkerCheck merges into the same DEPENDENCIES (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        honker {
+            licenseOverride 'asm:asm:[3.0,4.0)', 'BSD 3-Clause'
+            licenseOverride 'mysql', 'Apache 2'
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksWithFailure 'honkerCheck', '--shard=0/2', '--fail-fast'
+
+        then:
+        result.output.contains 'honkerCheck --fail-fast cannot be combined with --shard'
+
+        when:
+        runTasksSuccessfully 'honkerCheck', '--shard=0/3'
+        result = runTasksSuccessfully 'honkerCheck', '--shard=0/2'
+
+        then:
+        result.task(':honkerCheck').outcome == SUCCESS
+        fileExists 'build/honker/check-shards/shard-0-of-2.bin'
+        !file('build/honker/check-shards/shard-0-of-3.bin').exists()
+
+        when:
+        result = runTasksWithFailure 'honkerCheckMerge'
+
+        then:
+        result.output.contains 'Expected the 2 shards of honkerCheck'
+        result.output.contains 'missing: [1]'
+
+        when:
+        runTasksSuccessfully 'honkerCheck', '--shard=1/2'
+        result = runTasksSuccessfully 'honkerCheckMerge', 'honkerGenDependencies'
+
+        then:
+        result.task(':honkerCheckMerge').outcome == SUCCESS
+        file('build/honker/check-merge/META-INF/DEPENDENCIES.txt').text ==
+            file('build/generated-resources/dependencies/META-INF/DEPENDENCIES.txt').text
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerWhy prints dependency paths (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerWhy', '--artifact=org.hamcrest:hamcrest-core'
+
+        then:
+        result.task(':honkerWhy').outcome == SUCCESS
+        result.output.contains 'org.hamcrest:hamcrest-core:1.3 is pulled in by:'
+        result.output.contains 'junit:junit:4.12 -> org.hamcrest:hamcrest-core:1.3'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerDiff compares with a baseline (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerDiff', '--write-baseline'
+
+        then:
+        result.task(':honkerDiff').outcome == SUCCESS
+        fileExists 'honker-baseline.txt'
+
+        when:
+        result = runTasksSuccessfully 'honkerDiff'
+
+        then:
+        result.task(':honkerDiff').outcome == SUCCESS
+        result.output.contains 'Licensing diff against honker-baseline.txt: no changes'
+
+        when:
+        buildFile << "\ndependencies { implementation 'commons-lang:commons-lang:2.6' }\n"
+        result = runTasksSuccessfully 'honkerDiff'
+
+        then:
+        result.task(':honkerDiff').outcome == SUCCESS
+        result.output.contains '1 added, 0 removed'
+        result.output.contains '+ commons-lang:commons-lang:2.6 Apache License, version 2.0.'
 
         where:
         testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
@@ -162,4 +327,416 @@ class HonkerPluginIntegrationSpec extends AbstractIntegrationSpec {
         where:
         testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
     }
+
+    @Unroll
+    def 'declarative dependency license override (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        honker {
+            licenseOverride 'asm:asm:[3.0,4.0)', 'BSD 3-Clause'
+            licenseOverride 'mysql', 'Apache 2'
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == SUCCESS
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'fuzzy license names (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        honker {
+            fuzzyLicenseNames()
+            licenseOverride 'asm:asm', 'The BSD License'
+            licenseOverride 'mysql', 'Apache License, Version 2'
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == SUCCESS
+        result.output.contains 'license name(s) matched approximately:'
+        result.output.contains "'Apache License, Version 2' as Apache License, version 2.0. (APACHE_2, score 0.92)"
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'license detection tiers (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        honker {
+            licenseDetection 'override'
+            licenseOverride 'asm:asm', 'BSD 3-Clause'
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksWithFailure 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == FAILED
+        result.output.contains 'junit:junit:4.12:jar no licensing data could be found'
+        !result.output.contains('asm:asm:3.1:jar no licensing data could be found')
+        !result.output.contains('GNU General Public License conflicts')
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'license database (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        honker {
+            licenseDatabase()
+            licenseDetection 'database'
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksWithFailure 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == FAILED
+        !result.output.contains('junit:junit:4.12:jar no licensing data could be found')
+        !result.output.contains('org.slf4j:slf4j-api:1.7.12:jar no licensing data could be found')
+        result.output.contains 'asm:asm:3.1:jar no licensing data could be found'
+
+        when:
+        runTasksSuccessfully 'honkerReport'
+
+        then:
+        def report = reportData()
+        report.modules.find { it.id == 'junit:junit:4.12' }.artifacts[0].licenseTier == 'DATABASE'
+
+        when:
+        result = runTasksSuccessfully 'honkerLicenseDatabase'
+
+        then:
+        result.task(':honkerLicenseDatabase').outcome == SUCCESS
+        fileExists 'build/honker/license-database.bin'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'reports artifacts with identical content (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        def jarBytes = new ByteArrayOutputStream()
+        new ZipOutputStream( jarBytes ).withCloseable { zip ->
+            zip.putNextEntry( new ZipEntry( 'acme/shared.txt' ) )
+            zip.write( 'shared'.bytes )
+            zip.closeEntry()
+        }
+        [ 'alpha', 'beta' ].each { module ->
+            createFile( "repo/acme/$module/1.0/${module}-1.0.jar" ).bytes = jarBytes.toByteArray()
+            createFile( "repo/acme/$module/1.0/${module}-1.0.pom" ) << """
+                <project>
+                    <modelVersion>4.0.0</modelVersion>
+                    <groupId>acme</groupId>
+                    <artifactId>$module</artifactId>
+                    <version>1.0</version>
+                    <licenses><license><name>Apache License 2.0</name></license></licenses>
+                </project>
+            """.stripIndent().trim()
+        }
+        buildFile << '''
+            plugins {
+                id 'org.nosphere.honker'
+            }
+            honker {
+                license 'Apache License 2.0'
+            }
+            repositories { maven { url = file( 'repo' ) } }
+            dependencies {
+                implementation 'acme:alpha:1.0'
+                implementation 'acme:beta:1.0'
+            }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == SUCCESS
+        result.output.contains '1 artifact(s) have identical content under several coordinates'
+        result.output.contains 'acme:alpha:1.0:jar = acme:beta:1.0:jar'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'does not retry unresolvable POMs (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        createFile( 'repo/acme/lonely/1.0/lonely-1.0.jar' ).bytes = ( [ 80, 75, 5, 6 ] + [ 0 ] * 18 ) as byte[]
+        buildFile << '''
+            plugins {
+                id 'org.nosphere.honker'
+            }
+            honker {
+                license 'Apache License 2.0'
+            }
+            repositories {
+                maven {
+                    url = file( 'repo' )
+                    metadataSources { artifact() }
+                }
+            }
+            dependencies {
+                implementation 'acme:lonely:1.0'
+            }
+        '''.stripIndent()
+
+        when:
+        BuildResult refreshed = runTasksWithFailure 'honkerCheck', '--refresh-dependencies'
+        BuildResult cached = runTasksWithFailure 'honkerCheck'
+        createFile( 'other-repo/.keep' )
+        file( 'build.gradle' ) << '''
+            repositories {
+                maven { url = file( 'other-repo' ) }
+            }
+        '''.stripIndent()
+        BuildResult otherRepositories = runTasksWithFailure 'honkerCheck'
+
+        then:
+        refreshed.output.contains '1 POM(s) could not be resolved'
+        refreshed.output.contains '  acme:lonely:1.0 ('
+        cached.output.contains '1 known unresolvable POM(s) were not retried'
+        cached.output.contains 'acme:lonely:1.0:jar no licensing data could be found'
+        otherRepositories.output.contains '1 POM(s) could not be resolved'
+        !otherRepositories.output.contains( 'known unresolvable POM(s) were not retried' )
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerCheck several configurations (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        dependencies {
+            annotationProcessor 'mysql:mysql-connector-java:5.1.35'
+        }
+        honkerCheck {
+            configurations project.configurations.compileClasspath, project.configurations.annotationProcessor
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksWithFailure 'honkerCheck'
+
+        then:
+        result.task(':honkerCheck').outcome == FAILED
+        result.output.contains 'compileClasspath: 2 license check failure(s)'
+        !result.output.contains('runtimeClasspath, compileClasspath')
+        result.output.contains 'annotationProcessor: 1 license check failure(s)'
+        result.output.contains 'License check failures: 2'
+        result.output.contains 'mysql:mysql-connector-java:5.1.35:jar GNU General Public License conflicts with The Apache Software License, Version 2.0 (compileClasspath, annotationProcessor)'
+        result.output.contains 'asm:asm:3.1:jar no licensing data could be found (compileClasspath)'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'streams several configurations extracting shared artifacts once (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build + '''
+        configurations {
+            first
+            second
+        }
+        dependencies {
+            first 'junit:junit:4.12'
+            second 'junit:junit:4.12'
+            second 'org.slf4j:slf4j-api:1.7.12'
+        }
+        tasks.register( 'streamTrees' ) {
+            doLast {
+                def loader = new org.nosphere.honker.gradle.deptree.GradleDepTreesLoader(
+                    project, [ configurations.first, configurations.second ]
+                )
+                def visited = [:]
+                loader.stream { List<String> names ->
+                    visited[ names ] = []
+                    [
+                        visitEnter: { node -> visited[ names ].addAll node.data.artifacts; true },
+                        visitExit : { node -> true }
+                    ] as org.nosphere.honker.deptree.DepTreeVisitor
+                }
+                def junit = visited.values().collect { artifacts -> artifacts.find { it.coordinates.startsWith 'junit:junit:4.12' } }
+                println "Streamed configurations: ${ visited.keySet() }"
+                println "Shared artifacts extracted once: ${ junit[ 0 ].is( junit[ 1 ] ) }"
+                println "Streamed artifacts released: ${ loader.artifactLoader.updatedLock.empty }"
+            }
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksSuccessfully 'streamTrees'
+
+        then:
+        result.output.contains 'Streamed configurations: [[first], [second]]'
+        result.output.contains 'Shared artifacts extracted once: true'
+        result.output.contains 'Streamed artifacts released: true'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerLock writes a lock file used by honkerCheck (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerLock'
+
+        then:
+        result.task(':honkerLock').outcome == SUCCESS
+        result.tasks.every { !it.path.startsWith(':honkerMetadata') }
+        fileExists 'honker.lock'
+        file('honker.lock').text.contains '"mysql:mysql-connector-java:5.1.35:jar"'
+        file('honker.lock').text.contains '"version": 2'
+        def lock = new groovy.json.JsonSlurper().parse(file('honker.lock'))
+        lock.artifacts['junit:junit:4.12:jar'].licenses == ['Eclipse Public License (EPL)']
+        lock.artifacts['junit:junit:4.12:jar'].organization == 'JUnit'
+
+        when:
+        result = runTasksWithFailure 'honkerCheck'
+
+        then:
+        result.output.contains 'License check failures: 2'
+        !result.output.contains('Licensing metadata lock file is out of date')
+
+        when:
+        buildFile << '''
+        dependencies { implementation 'commons-io:commons-io:2.4' }
+        '''.stripIndent()
+        result = runTasksWithFailure 'honkerCheck'
+
+        then:
+        result.output.contains 'Licensing metadata lock file is out of date, 1 new or changed artifact(s) were scanned'
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerSbom generates a cacheable CycloneDX SBOM (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerSbom', '--build-cache'
+
+        then:
+        result.task(':honkerSbom').outcome == SUCCESS
+        def bom = new groovy.json.JsonSlurper().parse(file('build/reports/honker/bom.cdx.json'))
+        bom.bomFormat == 'CycloneDX'
+        bom.components.find { it.'bom-ref' == 'junit:junit:4.12' }.licenses*.license*.name == ['Eclipse Public License (EPL)']
+        bom.dependencies.find { it.ref == 'junit:junit:4.12' }.dependsOn == ['org.hamcrest:hamcrest-core:1.3']
+
+        when:
+        file('build').deleteDir()
+        result = runTasksSuccessfully 'honkerSbom', '--build-cache'
+
+        then:
+        result.task(':honkerSbom').outcome == FROM_CACHE
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'shares extracted metadata through the build cache (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        settingsFile << '''
+        buildCache {
+            local {
+                directory = new File(rootDir, 'shared-build-cache')
+            }
+        }
+        '''.stripIndent()
+        buildFile << build + '''
+        honker {
+            buildCacheMetadata()
+        }
+        '''.stripIndent()
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerGenDependencies', '--build-cache'
+
+        then:
+        result.task(':honkerMetadata0').outcome == SUCCESS
+        result.task(':honkerGenDependencies').outcome == SUCCESS
+
+        when:
+        file('build').deleteDir()
+        result = runTasksSuccessfully 'honkerGenDependencies', '--build-cache', '--info'
+
+        then:
+        result.tasks.findAll { it.path.startsWith(':honkerMetadata') }.every { it.outcome == FROM_CACHE }
+        result.output.find( /Honker metadata store: [1-9]\d* artifact\(s\) reused from the build cache/ )
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    @Unroll
+    def 'honkerGenThirdParty generates cacheable aggregated NOTICE and LICENSE (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+
+        when:
+        BuildResult result = runTasksSuccessfully 'honkerGenThirdParty', '--build-cache'
+
+        then:
+        result.task(':honkerGenThirdParty').outcome == SUCCESS
+        def license = file('build/generated-resources/third-party/META-INF/LICENSE-THIRD-PARTY.txt').text
+        license.contains '  - junit:junit:4.12:jar'
+        !license.contains('org.slf4j:slf4j-api')
+        fileExists 'build/generated-resources/third-party/META-INF/NOTICE-THIRD-PARTY.txt'
+
+        when:
+        file('build').deleteDir()
+        result = runTasksSuccessfully 'honkerGenThirdParty', '--build-cache'
+
+        then:
+        result.task(':honkerGenThirdParty').outcome == FROM_CACHE
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+
+    private Object reportData() {
+        def script = file('build/reports/honker/report/report.js').getText('UTF-8')
+        assert script.startsWith('window.honkerReport = ')
+        return new groovy.json.JsonSlurper().parseText(script - 'window.honkerReport = ' - ~/;\s*$/)
+    }
 }
@@ -121,5 +121,26 @@ class MultiModuleIntegrationSpec extends AbstractIntegrationSpec {
         where:
         testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
     }
-}
 
+    @Unroll
+    def 'runs honker tasks with parallel project execution (gradle=#testedGradleVersion)'() {
+        setup:
+        gradleVersion = testedGradleVersion
+        buildFile << build
+        createFile('settings.gradle') << settings
+        createFile('api/build.gradle') << apiBuild
+        createFile('core/build.gradle') << coreBuild
+
+        when:
+        BuildResult result = runTasksSuccessfully('honkerCheck', 'honkerGenDependencies', '--parallel')
+
+        then:
+        result.task(':api:honkerCheck').outcome == SUCCESS
+        result.task(':core:honkerCheck').outcome == SUCCESS
+        result.task(':api:honkerGenDependencies').outcome == SUCCESS
+        result.task(':core:honkerGenDependencies').outcome == SUCCESS
+
+        where:
+        testedGradleVersion << TestEnv.TESTED_GRADLE_VERSIONS
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.nosphere.honker.deptree
+
+import spock.lang.Specification
+
+/**
+ * DepTreeCodec Spec.
+ */
+class DepTreeCodecSpec extends Specification {
+
+    def 'round-trips null strings'() {
+        given:
+        def pom = new DepTreeData.Pom(null, null, null, null, null, [new DepTreeData.PomLicense(null, null, null, null)])
+        def artifact = artifact('org.acme:nulls:1.0', null, DepTreeData.Manifest.EMPTY, null, pom, [])
+        def tree = new DepTree([new DepTreeNode(new DepTreeData('org.acme:nulls:1.0', [artifact]))])
+
+        when:
+        def decoded = roundTrip(tree).nodes[0].artifacts[0]
+
+        then:
+        decoded.checksum == null
+        decoded.overridenLicense == null
+        decoded.manifest == DepTreeData.Manifest.EMPTY
+        decoded.embeddedPom == null
+        decoded.pom == pom
+        decoded.structurallyEquals(artifact)
+    }
+
+    def 'round-trips shared artifacts once'() {
+        given:
+        def shared = artifact('org.acme:shared:1.0', 'c0ffee', manifest('Apache 2'), pom('ACME'), pom('ACME'), [])
+        def alpha = new DepTreeNode(new DepTreeData('org.acme:alpha:1.0', [shared]))
+        new DepTreeNode(alpha, new DepTreeData('org.acme:beta:1.0', [shared]))
+        def tree = new DepTree([alpha])
+
+        when:
+        def decoded = roundTrip(tree)
+
+        then:
+        decoded.nodes*.coordinates == ['org.acme:alpha:1.0', 'org.acme:beta:1.0']
+        decoded.nodes[0].artifacts[0].is(decoded.nodes[1].artifacts[0])
+        decoded.nodes[0].artifacts[0].identity == 'org.acme:shared:1.0@c0ffee'
+        decoded.nodes[0].artifacts[0].embeddedPom == pom('ACME')
+        decoded.nodes[0].artifacts[0].licenseTier == shared.licenseTier
+        decoded.nodes[0].artifacts[0].structurallyEquals(shared)
+    }
+
+    def 'round-trips pruned edges'() {
+        given:
+        def alpha = new DepTreeNode(data('org.acme:alpha:1.0'))
+        def beta = new DepTreeNode(data('org.acme:beta:1.0'))
+        new DepTreeNode(alpha, data('org.acme:gamma:1.0'))
+        def roots = ['org.acme:alpha:1.0', 'org.acme:beta:1.0'] as LinkedHashSet
+        def edges = [
+            'org.acme:alpha:1.0': ['org.acme:gamma:1.0'] as LinkedHashSet,
+            'org.acme:beta:1.0' : ['org.acme:gamma:1.0'] as LinkedHashSet,
+            'org.acme:gamma:1.0': [] as LinkedHashSet
+        ]
+        def tree = new DepTree([alpha, beta], roots, edges)
+
+        when:
+        def decoded = roundTrip(tree)
+
+        then:
+        shapeOf(decoded) == shapeOf(tree)
+        decoded.roots == roots
+        decoded.edges == edges
+        decoded.edges.keySet() as List == edges.keySet() as List
+    }
+
+    def 'round-trips license texts once'() {
+        given:
+        def text = 'Licensed under the Apache License, Version 2.0 – ©'
+        def alpha = artifact('org.acme:alpha:1.0', 'a', manifest(null), null, pom(null), [
+            new DepTreeData.SomeFile('LICENSE', 'META-INF/LICENSE', text),
+            new DepTreeData.SomeFile('NOTICE', 'META-INF/NOTICE', 'ACME notice')
+        ])
+        def beta = artifact('org.acme:beta:1.0', 'b', manifest(null), null, pom(null), [
+            new DepTreeData.SomeFile('LICENSE.txt', 'LICENSE.txt', text)
+        ])
+        def tree = new DepTree([
+            new DepTreeNode(new DepTreeData('org.acme:alpha:1.0', [alpha])),
+            new DepTreeNode(new DepTreeData('org.acme:beta:1.0', [beta]))
+        ])
+
+        when:
+        def bytes = encode(tree)
+        def decoded = DepTreeCodec.read(new ByteArrayInputStream(bytes))
+
+        then:
+        occurrences(bytes, text.getBytes('UTF-8')) == 1
+        decoded.nodes[0].artifacts[0].licenseFiles == alpha.licenseFiles
+        decoded.nodes[1].artifacts[0].licenseFiles == beta.licenseFiles
+        decoded.nodes[1].artifacts[0].licenseFiles[0].content == text
+    }
+
+    def 'round-trips deep trees'() {
+        given:
+        def depth = 1000
+        def root = new DepTreeNode(data('org.acme:m0:1.0'))
+        def parent = root
+        for (int idx = 1; idx < depth; idx++) {
+            parent = new DepTreeNode(parent, data("org.acme:m$idx:1.0"))
+        }
+        def tree = new DepTree([root])
+
+        when:
+        def decoded = roundTrip(tree)
+
+        then:
+        decoded.nodes.size() == depth
+        shapeOf(decoded) == shapeOf(tree)
+    }
+
+    def 'encodes decoded snapshots identically'() {
+        given:
+        def shared = artifact('org.acme:shared:1.0', 'c0ffee', manifest('MIT'), null, pom('ACME'), [
+            new DepTreeData.SomeFile('LICENSE', 'META-INF/LICENSE', 'MIT License')
+        ])
+        def alpha = new DepTreeNode(new DepTreeData('org.acme:alpha:1.0', [shared]))
+        new DepTreeNode(alpha, new DepTreeData('org.acme:beta:1.0', [shared]))
+        new DepTreeNode(alpha, data('org.acme:gamma:1.0'))
+        def tree = new DepTree(
+            [alpha],
+            ['org.acme:alpha:1.0'] as LinkedHashSet,
+            ['org.acme:alpha:1.0': ['org.acme:beta:1.0', 'org.acme:gamma:1.0'] as LinkedHashSet]
+        )
+
+        when:
+        def bytes = encode(tree)
+
+        then:
+        encode(DepTreeCodec.read(new ByteArrayInputStream(bytes))) == bytes
+    }
+
+    def 'writes only the given facets'() {
+        given:
+        def source = [
+            loadManifest    : { manifest('Apache 2') },
+            loadEmbeddedPom : { throw new AssertionError('embedded POM extracted') },
+            loadPom         : { pom('ACME') },
+            loadLicenseFiles: { throw new AssertionError('license files extracted') }
+        ] as DepTreeData.ArtifactSource
+        def artifact = new DepTreeData.Artifact('org.acme:alpha:1.0', 'a', source, 'MIT', LicenseDetection.DEFAULT)
+        def tree = new DepTree([new DepTreeNode(new DepTreeData('org.acme:alpha:1.0', [artifact]))])
+
+        when:
+        def output = new ByteArrayOutputStream()
+        DepTreeCodec.write(tree, output, EnumSet.of(DepTreeData.Facet.LICENSES, DepTreeData.Facet.ATTRIBUTION))
+        def decoded = DepTreeCodec.read(new ByteArrayInputStream(output.toByteArray())).nodes[0].artifacts[0]
+
+        then:
+        decoded.detectedLicenses == artifact.detectedLicenses
+        decoded.organization == 'ACME'
+        decoded.manifest == manifest('Apache 2')
+        decoded.licenseFiles.isEmpty()
+        decoded.embeddedPom == null
+    }
+
+    def 'rejects other formats'() {
+        when:
+        DepTreeCodec.read(new ByteArrayInputStream('HKDX'.getBytes('US-ASCII')))
+
+        then:
+        thrown(IOException)
+    }
+
+    def 'rejects truncated and corrupt snapshots with IOException'() {
+        given:
+        def file = new DepTreeData.SomeFile('LICENSE', 'META-INF/LICENSE', 'Apache License')
+        def alpha = new DepTreeNode(new DepTreeData('org.acme:alpha:1.0', [
+            artifact('org.acme:alpha:1.0', 'a', manifest('Apache 2'), pom('ACME'), pom('ACME'), [file])
+        ]))
+        new DepTreeNode(alpha, data('org.acme:beta:1.0'))
+        def bytes = encode(new DepTree([alpha]))
+
+        expect:
+        (0..<bytes.length).every { length -> readFailure(Arrays.copyOf(bytes, length)) instanceof IOException }
+        (4..<bytes.length).every { idx ->
+            def corrupt = Arrays.copyOf(bytes, bytes.length)
+            corrupt[idx] = (byte) 0x7F
+            def failure = readFailure(corrupt)
+            failure == null || failure instanceof IOException
+        }
+    }
+
+    private static Exception readFailure(byte[] bytes) {
+        try {
+            DepTreeCodec.read(new ByteArrayInputStream(bytes))
+            return null
+        } catch (Exception ex) {
+            return ex
+        }
+    }
+
+    private static DepTree roundTrip(DepTree tree) {
+        return DepTreeCodec.read(new ByteArrayInputStream(encode(tree)))
+    }
+
+    private static byte[] encode(DepTree tree) {
+        def output = new ByteArrayOutputStream()
+        DepTreeCodec.write(tree, output)
+        return output.toByteArray()
+    }
+
+    private static String shapeOf(DepTree tree) {
+        def shape = new StringBuilder()
+        tree.accept(new DepTreeVisitor() {
+            @Override
+            boolean visitEnter(DepTreeNode node) {
+                shape.append('(').append(node.data.coordinates)
+                return true
+            }
+
+            @Override
+            boolean visitExit(DepTreeNode node) {
+                shape.append(')')
+                return true
+            }
+        })
+        return shape.toString()
+    }
+
+    private static int occurrences(byte[] bytes, byte[] sequence) {
+        int count = 0
+        for (int idx = 0; idx <= bytes.length - sequence.length; idx++) {
+            if (Arrays.equals(Arrays.copyOfRange(bytes, idx, idx + sequence.length), sequence)) {
+                count++
+            }
+        }
+        return count
+    }
+
+    private static DepTreeData data(String coordinates) {
+        return new DepTreeData(coordinates, [artifact(coordinates, null, manifest(null), null, pom(null), [])])
+    }
+
+    private static DepTreeData.Manifest manifest(String license) {
+        return new DepTreeData.Manifest('Name', '1.0', 'ACME', 'http://acme.org', license)
+    }
+
+    private static DepTreeData.Pom pom(String organization) {
+        return new DepTreeData.Pom(organization, null, 'Name', '1.0', 'http://acme.org', [
+            new DepTreeData.PomLicense('Apache License, Version 2.0', 'http://www.apache.org/licenses/LICENSE-2.0', 'repo', null)
+        ])
+    }
+
+    private static DepTreeData.Artifact artifact(String coordinates, String checksum,
+                                                 DepTreeData.Manifest manifest, DepTreeData.Pom embeddedPom,
+                                                 DepTreeData.Pom pom, List<DepTreeData.SomeFile> licenseFiles) {
+        def source = [
+            loadManifest    : { manifest },
+            loadEmbeddedPom : { embeddedPom },
+            loadPom         : { pom },
+            loadLicenseFiles: { licenseFiles }
+        ] as DepTreeData.ArtifactSource
+        return new DepTreeData.Artifact(coordinates, checksum, source, null, LicenseDetection.DEFAULT)
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.nosphere.honker.deptree
+
+import spock.lang.Specification
+
+/**
+ * DepTree collect Spec.
+ */
+class DepTreeCollectSpec extends Specification {
+
+    def 'combines partitions in node order'() {
+        given:
+        def tree = deepAndWideTree(20, 50)
+
+        expect:
+        (1..20).every { tree.collect(new CoordinatesCollector()) == tree.nodes*.coordinates }
+    }
+
+    def 'combines trees in the given order'() {
+        given:
+        def first = deepAndWideTree(3, 100)
+        def second = deepAndWideTree(2, 70)
+
+        expect:
+        DepTree.collect([first, second], new CoordinatesCollector()) == first.nodes*.coordinates + second.nodes*.coordinates
+        DepTree.collect([], new CoordinatesCollector()) == []
+    }
+
+    def 'accumulates sequentially when facets are left to extract'() {
+        given:
+        def threads = Collections.synchronizedSet(new HashSet<Thread>())
+        def source = [
+            loadManifest    : { threads << Thread.currentThread(); DepTreeData.Manifest.EMPTY },
+            loadEmbeddedPom : { null },
+            loadPom         : { threads << Thread.currentThread(); new DepTreeData.Pom('ACME', null, null, null, null) },
+            loadLicenseFiles: { [] }
+        ] as DepTreeData.ArtifactSource
+        def children = (0..<500).collect { idx ->
+            def artifact = new DepTreeData.Artifact("org.acme:m$idx:1.0", null, source, null, LicenseDetection.DEFAULT)
+            new DepTreeNode(new DepTreeData("org.acme:m$idx:1.0", [artifact]))
+        }
+        def tree = new DepTree(children)
+
+        when:
+        def coordinates = tree.collect(new CoordinatesCollector() {
+            @Override
+            void accumulate(List<String> container, DepTreeData data) {
+                data.artifacts*.organization
+                super.accumulate(container, data)
+            }
+        })
+
+        then:
+        coordinates == tree.nodes*.coordinates
+        threads == [Thread.currentThread()] as Set
+    }
+
+    private static DepTree deepAndWideTree(int roots, int width) {
+        def children = []
+        for (int root = 0; root < roots; root++) {
+            def node = new DepTreeNode(new DepTreeData("org.acme:r$root:1.0", []))
+            for (int idx = 0; idx < width; idx++) {
+                def child = new DepTreeNode(node, new DepTreeData("org.acme:r$root-c$idx:1.0", []))
+                new DepTreeNode(child, new DepTreeData("org.acme:r$root-c$idx-leaf:1.0", []))
+            }
+            children << node
+        }
+        return new DepTree(children)
+    }
+
+    private static class CoordinatesCollector implements DepTreeCollector<List<String>, List<String>> {
+
+        @Override
+        List<String> supply() {
+            return []
+        }
+
+        @Override
+        void accumulate(List<String> container, DepTreeData data) {
+            // Widen the window for partitions to complete out of order
+            if (data.coordinates.hashCode() % 7 == 0) {
+                Thread.sleep(1)
+            }
+            container << data.coordinates
+        }
+
+        @Override
+        List<String> combine(List<String> left, List<String> right) {
+            left.addAll(right)
+            return left
+        }
+
+        @Override
+        List<String> finish(List<String> container) {
+            return container
+        }
+    }
+}
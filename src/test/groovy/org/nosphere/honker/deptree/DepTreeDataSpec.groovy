@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.nosphere.honker.deptree
+
+import spock.lang.Specification
+
+/**
+ * DepTreeData Spec.
+ */
+class DepTreeDataSpec extends Specification {
+
+    def 'artifacts are equal by coordinates and checksum without extracting facets'() {
+        given:
+        def left = new DepTreeData.Artifact('org.acme:alpha:1.0', 'c0ffee', unreadable(), null, LicenseDetection.DEFAULT)
+        def right = new DepTreeData.Artifact('org.acme:alpha:1.0', 'c0ffee', unreadable(), null, LicenseDetection.DEFAULT)
+
+        expect:
+        left == right
+        left.hashCode() == right.hashCode()
+        ([left, right] as Set).size() == 1
+        left != new DepTreeData.Artifact('org.acme:alpha:1.0', 'cafe', unreadable(), null, LicenseDetection.DEFAULT)
+        left != new DepTreeData.Artifact('org.acme:alpha:1.1', 'c0ffee', unreadable(), null, LicenseDetection.DEFAULT)
+    }
+
+    def 'artifacts without checksum are identified by their coordinates'() {
+        given:
+        def artifact = new DepTreeData.Artifact('org.acme:alpha:1.0', null, unreadable(), null, LicenseDetection.DEFAULT)
+
+        expect:
+        artifact.identity == 'org.acme:alpha:1.0'
+        artifact == new DepTreeData.Artifact('org.acme:alpha:1.0', null, unreadable(), null, LicenseDetection.DEFAULT)
+        artifact != new DepTreeData.Artifact('org.acme:alpha:1.0', 'c0ffee', unreadable(), null, LicenseDetection.DEFAULT)
+    }
+
+    def 'identical artifacts can differ structurally'() {
+        given:
+        def apache = artifact('org.acme:alpha:1.0', 'c0ffee', 'Apache License, Version 2.0')
+        def sameApache = artifact('org.acme:alpha:1.0', 'c0ffee', 'Apache License, Version 2.0')
+        def mit = artifact('org.acme:alpha:1.0', 'c0ffee', 'MIT License')
+
+        expect:
+        apache == mit
+        apache.structurallyEquals(sameApache)
+        !apache.structurallyEquals(mit)
+    }
+
+    def 'structurally equal artifacts can differ by checksum'() {
+        given:
+        def left = artifact('org.acme:alpha:1.0', 'c0ffee', 'Apache License, Version 2.0')
+        def right = artifact('org.acme:alpha:1.0', 'cafe', 'Apache License, Version 2.0')
+
+        expect:
+        left != right
+        left.structurallyEquals(right)
+    }
+
+    def 'artifacts only print extracted facets'() {
+        given:
+        def unread = new DepTreeData.Artifact('org.acme:alpha:1.0', 'c0ffee', unreadable(), null, LicenseDetection.DEFAULT)
+        def read = artifact('org.acme:alpha:1.0', 'c0ffee', 'MIT License')
+        read.load(EnumSet.of(DepTreeData.Facet.ATTRIBUTION))
+
+        expect:
+        unread.toString() == 'Artifact{org.acme:alpha:1.0}'
+        read.toString() == "Artifact{org.acme:alpha:1.0, ${DepTreeData.Manifest.EMPTY}, ${read.pom}}"
+    }
+
+    private static DepTreeData.Artifact artifact(String coordinates, String checksum, String license) {
+        def pom = new DepTreeData.Pom('ACME', null, 'Alpha', '1.0', null, [new DepTreeData.PomLicense(license, null, null, null)])
+        def source = [
+            loadManifest    : { DepTreeData.Manifest.EMPTY },
+            loadEmbeddedPom : { null },
+            loadPom         : { pom },
+            loadLicenseFiles: { [] }
+        ] as DepTreeData.ArtifactSource
+        return new DepTreeData.Artifact(coordinates, checksum, source, null, LicenseDetection.DEFAULT)
+    }
+
+    private static DepTreeData.ArtifactSource unreadable() {
+        def fail = { throw new IllegalStateException('Facets should not be extracted') }
+        return [
+            loadManifest    : fail,
+            loadEmbeddedPom : fail,
+            loadPom         : fail,
+            loadLicenseFiles: fail
+        ] as DepTreeData.ArtifactSource
+    }
+}